@@ -0,0 +1,86 @@
+package de.johannes.sonarqube.checkstyle.rules.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Benchmarks the bytes allocated per issue. The two sources of a check are
+ * generated from the same seed and only differ in their optional whitespace:
+ * with a whitespace ratio of <code>0</code> there is no issue, with
+ * <code>1</code> there is one at every optional whitespace. The allocation
+ * per issue is the difference of the <code>gc.alloc.rate.norm</code> of the
+ * two sources divided by the issues per file, which is the score of the
+ * <code>issues</code> counter divided by the score of the benchmark. Most of
+ * it is the issue recorded by the {@link CheckRunner}; the checks themselves
+ * only look up their precomputed messages:
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=IssueAllocationBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IssueAllocationBenchmark {
+
+	private static final long SEED = 20221017L;
+
+	@Param({ "NoWhitespaceAfterCheck", "NoWhitespaceBeforeCheck" })
+	private String check;
+
+	@Param({ "0", "1" })
+	private double whitespaceRatio;
+
+	@Param({ "10000" })
+	private int lines;
+
+	private ParsedFile parsedFile;
+	private NoWhitespaceCheck noWhitespaceCheck;
+
+	/**
+	 * Counts the issues per operation.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class IssueCounter {
+		public long issues;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(SEED);
+		generator.setWhitespaceRatio(whitespaceRatio);
+		generator.setLineBreakRatio(0);
+		parsedFile = CheckRunner.parse("BenchmarkSource.java", generator.generate("BenchmarkSource", lines));
+
+		noWhitespaceCheck = "NoWhitespaceAfterCheck".equals(check) ? new NoWhitespaceAfterCheck()
+				: new NoWhitespaceBeforeCheck();
+	}
+
+	@Benchmark
+	public int visitFile(IssueCounter pIssueCounter) {
+		final int result = CheckRunner.scan(noWhitespaceCheck, parsedFile).size();
+		pIssueCounter.issues += result;
+		return result;
+	}
+}
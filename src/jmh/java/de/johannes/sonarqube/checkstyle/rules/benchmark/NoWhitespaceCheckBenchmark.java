@@ -0,0 +1,70 @@
+package de.johannes.sonarqube.checkstyle.rules.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Benchmarks the visit phase of the whitespace checks on a file that is parsed
+ * once per trial. Run with the GC profiler to see the bytes allocated per file:
+ * <code>mvn -Pbenchmark test-compile exec:exec</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoWhitespaceCheckBenchmark {
+
+	private static final long SEED = 20221017L;
+
+	@Param({ "NoWhitespaceAfterCheck", "NoWhitespaceBeforeCheck" })
+	private String check;
+
+	@Param({ "1000", "10000", "100000" })
+	private int lines;
+
+	@Param({ "true", "false" })
+	private boolean allowLineBreaks;
+
+	@Param({ "LF", "CRLF" })
+	private JavaCorpusGenerator.LineSeparator lineSeparator;
+
+	private ParsedFile parsedFile;
+	private NoWhitespaceCheck noWhitespaceCheck;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(SEED);
+		generator.setLineSeparator(lineSeparator);
+		parsedFile = CheckRunner.parse("BenchmarkSource.java", generator.generate("BenchmarkSource", lines));
+
+		noWhitespaceCheck = "NoWhitespaceAfterCheck".equals(check) ? new NoWhitespaceAfterCheck()
+				: new NoWhitespaceBeforeCheck();
+		noWhitespaceCheck.setAllowLineBreaks(allowLineBreaks);
+	}
+
+	@Benchmark
+	public int visitFile() {
+		return CheckRunner.scan(noWhitespaceCheck, parsedFile).size();
+	}
+}
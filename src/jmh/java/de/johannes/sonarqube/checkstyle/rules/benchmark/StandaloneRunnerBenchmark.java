@@ -0,0 +1,80 @@
+package de.johannes.sonarqube.checkstyle.rules.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.StandaloneRunner;
+
+/**
+ * Benchmarks the standalone runner on a directory of generated files with a
+ * growing number of threads. The speedup of the parallel mode is the time of
+ * <code>threads=1</code> divided by the time of the other thread counts;
+ * <code>threads=0</code> uses one thread per processor:
+ * <code>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.includes=StandaloneRunnerBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StandaloneRunnerBenchmark {
+
+	private static final long SEED = 20221017L;
+
+	@Param({ "1", "2", "4", "8", "0" })
+	private String threads;
+
+	@Param({ "400" })
+	private int files;
+
+	@Param({ "500" })
+	private int lines;
+
+	private Path directory;
+	private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("standalone-runner-benchmark");
+
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(SEED);
+		for (int file = 0; file < files; file++) {
+			generator.setWhitespaceRatio(file % 5 * 0.1);
+			Files.writeString(directory.resolve("Source" + file + ".java"), generator.generate("Source" + file, lines));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public int analyzeDirectory() {
+		return StandaloneRunner.run(new String[] { "--threads", threads, directory.toString() }, discard, discard);
+	}
+}
@@ -0,0 +1,210 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.EnumConstantTree;
+import org.sonar.plugins.java.api.tree.ImportClauseTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
+import org.sonar.plugins.java.api.tree.StatementTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.Tree.Kind;
+
+/**
+ * Violations of a rule on a file, grouped by line or by statement, that are
+ * reported as one issue per group when the file is left. The first violation
+ * of a group in the order of the source is the primary location of the issue
+ * and the others are its secondary locations; the effort to fix the issue is
+ * the number of violations. Without a grouping, each violation is reported
+ * right away. The cache and the incremental analysis keep the single
+ * violations, so the groups are formed anew when they are replayed.
+ */
+final class AggregatedIssues {
+
+	private static final Logger LOG = Loggers.get(AggregatedIssues.class);
+
+	private static final Comparator<Violation> VIOLATION_ORDER = Comparator
+			.comparingInt((Violation violation) -> violation.line).thenComparingInt(violation -> violation.column);
+
+	private final NoWhitespaceCheck check;
+	private final Grouping grouping;
+	/** Violations by the line or the statement they are grouped by. */
+	private final Map<Object, List<Violation>> groups = new LinkedHashMap<>();
+
+	AggregatedIssues(NoWhitespaceCheck pCheck, Grouping pGrouping) {
+		check = pCheck;
+		grouping = pGrouping;
+	}
+
+	/**
+	 * Creates the issues of a rule from its rule property. An unknown value of
+	 * the rule property turns the aggregation off.
+	 *
+	 * @param pCheck
+	 *            the rule that raises the violations.
+	 * @param pRuleKey
+	 *            the key of the rule, for the log.
+	 * @param pAggregateIssues
+	 *            the rule property: <code>none</code>, <code>line</code> or
+	 *            <code>statement</code>.
+	 * @return the issues.
+	 */
+	static AggregatedIssues of(NoWhitespaceCheck pCheck, String pRuleKey, String pAggregateIssues) {
+		Grouping grouping;
+		try {
+			grouping = Grouping.of(pAggregateIssues);
+		} catch (IllegalArgumentException e) {
+			LOG.warn("{} ignores unknown aggregateIssues {}, expected none, line or statement", pRuleKey,
+					pAggregateIssues);
+			grouping = Grouping.NONE;
+		}
+		return new AggregatedIssues(pCheck, grouping);
+	}
+
+	/**
+	 * Adds a violation, or reports it right away without a grouping.
+	 *
+	 * @param pReportTree
+	 *            the tree to report the violation on.
+	 * @param pLine
+	 *            the line of the checked token.
+	 * @param pColumn
+	 *            the column of the checked token.
+	 * @param pMessage
+	 *            the message of the violation.
+	 */
+	void add(Tree pReportTree, int pLine, int pColumn, String pMessage) {
+		if (grouping == Grouping.NONE) {
+			check.reportIssue(pReportTree, pLine, pColumn, pMessage, Collections.emptyList(), null);
+
+		} else {
+			final Object groupKey = grouping == Grouping.LINE ? Integer.valueOf(pLine) : findStatement(pReportTree);
+			groups.computeIfAbsent(groupKey, key -> new ArrayList<>())
+					.add(new Violation(pReportTree, pLine, pColumn, pMessage));
+		}
+	}
+
+	/**
+	 * Reports an issue for each group of violations and clears the groups. A
+	 * single violation is reported as it is.
+	 */
+	void report() {
+		for (final List<Violation> violations : groups.values()) {
+			violations.sort(VIOLATION_ORDER);
+			final Violation primary = violations.get(0);
+
+			if (violations.size() == 1) {
+				check.reportIssue(primary.reportTree, primary.line, primary.column, primary.message,
+						Collections.emptyList(), null);
+
+			} else {
+				final List<JavaFileScannerContext.Location> secondaryLocations = new ArrayList<>(
+						violations.size() - 1);
+				for (int i = 1; i < violations.size(); i++) {
+					final Violation secondary = violations.get(i);
+					secondaryLocations
+							.add(new JavaFileScannerContext.Location(secondary.message, secondary.reportTree));
+				}
+				check.reportIssue(primary.reportTree, primary.line, primary.column,
+						createMessage(primary.message, secondaryLocations.size()), secondaryLocations,
+						violations.size());
+			}
+		}
+		groups.clear();
+	}
+
+	/**
+	 * Drops the violations without reporting them.
+	 */
+	void clear() {
+		groups.clear();
+	}
+
+	private String createMessage(String pPrimaryMessage, int pSecondaryCount) {
+		return pPrimaryMessage + " " + pSecondaryCount
+				+ (pSecondaryCount == 1 ? " more violation " : " more violations ") + grouping.location + ".";
+	}
+
+	/**
+	 * Finds the statement or declaration enclosing a tree. Parameters of
+	 * methods and lambdas are variables, but belong to their method or lambda.
+	 */
+	private static Tree findStatement(Tree pTree) {
+		Tree result = pTree;
+		while (result.parent() != null && !isStatement(result)) {
+			result = result.parent();
+		}
+		return result;
+	}
+
+	private static boolean isStatement(Tree pTree) {
+		final boolean result;
+		if (pTree.is(Kind.VARIABLE)) {
+			result = !pTree.parent().is(Kind.METHOD, Kind.CONSTRUCTOR, Kind.LAMBDA_EXPRESSION);
+		} else {
+			result = pTree instanceof StatementTree || pTree instanceof MethodTree
+					|| pTree instanceof EnumConstantTree || pTree instanceof ImportClauseTree
+					|| pTree instanceof PackageDeclarationTree;
+		}
+		return result;
+	}
+
+	/**
+	 * What the violations of an issue are grouped by.
+	 */
+	enum Grouping {
+		/** Every violation is an issue of its own. */
+		NONE(null),
+		/** The violations on the same line are one issue. */
+		LINE("on this line"),
+		/** The violations in the same statement or declaration are one issue. */
+		STATEMENT("in this statement");
+
+		/** Where the violations of an issue are, for its message. */
+		private final String location;
+
+		Grouping(String pLocation) {
+			location = pLocation;
+		}
+
+		/**
+		 * Gets a grouping by its name, ignoring the case.
+		 *
+		 * @param pName
+		 *            the name: <code>none</code>, <code>line</code> or
+		 *            <code>statement</code>.
+		 * @return the grouping, {@link #NONE} if the name is empty.
+		 * @throws IllegalArgumentException
+		 *             if there is no grouping of the name.
+		 */
+		static Grouping of(String pName) {
+			return pName == null || pName.isBlank() ? NONE : valueOf(pName.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * A violation waiting to be reported.
+	 */
+	private static final class Violation {
+		private final Tree reportTree;
+		private final int line;
+		private final int column;
+		private final String message;
+
+		Violation(Tree pReportTree, int pLine, int pColumn, String pMessage) {
+			reportTree = pReportTree;
+			line = pLine;
+			column = pColumn;
+			message = pMessage;
+		}
+	}
+}
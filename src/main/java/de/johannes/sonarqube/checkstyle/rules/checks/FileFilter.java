@@ -0,0 +1,59 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+/**
+ * Decides whether a rule skips a file because it is too large or generated.
+ * Only the tree is inspected, so the source text of a skipped file is never
+ * loaded. Created from the rule properties of the rule.
+ */
+final class FileFilter {
+
+	private static final Logger LOG = Loggers.get(FileFilter.class);
+
+	private final int maxFileLines;
+	/** Detector of generated code, <code>null</code> if generated code is analyzed. */
+	private final GeneratedCode generatedCode;
+
+	/**
+	 * @param pMaxFileLines
+	 *            the number of lines above which a file is skipped,
+	 *            <code>0</code> for no limit.
+	 * @param pSkipGeneratedCode
+	 *            whether generated files are skipped.
+	 * @param pGeneratedCodeMarkers
+	 *            the comma separated markers of a generated file header.
+	 */
+	FileFilter(int pMaxFileLines, boolean pSkipGeneratedCode, String pGeneratedCodeMarkers) {
+		maxFileLines = pMaxFileLines;
+		generatedCode = pSkipGeneratedCode ? new GeneratedCode(pGeneratedCodeMarkers) : null;
+	}
+
+	/**
+	 * Checks if a file is skipped.
+	 *
+	 * @param pRuleKey
+	 *            the key of the rule, for the log.
+	 * @param pEngine
+	 *            the engine of the file.
+	 * @param pCompilationUnitTree
+	 *            the tree of the file.
+	 * @return <code>true</code> if the file is skipped.
+	 */
+	boolean isSkipped(String pRuleKey, NoWhitespaceEngine pEngine, CompilationUnitTree pCompilationUnitTree) {
+		boolean result = false;
+
+		if (maxFileLines > 0 && pEngine.getLineCount() > maxFileLines) {
+			LOG.debug("{} skips {} with more than {} lines", pRuleKey, pEngine.getFilePath(), maxFileLines);
+			result = true;
+
+		} else if (generatedCode != null && generatedCode.isGenerated(pCompilationUnitTree)) {
+			LOG.debug("{} skips generated {}", pRuleKey, pEngine.getFilePath());
+			result = true;
+		}
+
+		return result;
+	}
+}
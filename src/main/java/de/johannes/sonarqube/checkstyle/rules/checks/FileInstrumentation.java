@@ -0,0 +1,201 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+import de.johannes.sonarqube.checkstyle.rules.metrics.CheckFileEvent;
+import de.johannes.sonarqube.checkstyle.rules.metrics.RuleMetrics;
+import de.johannes.sonarqube.checkstyle.rules.metrics.SlowTokenEvent;
+
+/**
+ * Timing, budget and flight recorder events of a rule on a file. The node
+ * visits are only counted and timed while the metrics or the slowest files are
+ * on, the file event is recorded or the time per file is limited; otherwise a
+ * visit costs a branch. A rule reuses its instance for all files.
+ */
+final class FileInstrumentation {
+
+	private String ruleKey;
+	private NoWhitespaceEngine engine;
+	private int maxFileMillis;
+	private int maxCandidateTokens;
+
+	/** Metrics of the analysis, <code>null</code> if there are none or they are off. */
+	private AnalysisMetrics analysisMetrics;
+	/** Counters of the rule, <code>null</code> if the counters are off. */
+	private RuleMetrics metrics;
+	/** Flight recorder event of the file, <code>null</code> if not recorded. */
+	private CheckFileEvent fileEvent;
+	private boolean slowTokenEventEnabled;
+	private String filePath;
+	/** Whether the node visits are counted and timed for the file. */
+	private boolean instrumented;
+	private long visitedNodes;
+	private long inspectedTokens;
+	private long raisedIssues;
+	private long spentNanos;
+	/** Start of the node visit being timed, 0 outside of a timed visit. */
+	private long visitStartNanos;
+
+	/**
+	 * Starts instrumenting a file.
+	 *
+	 * @param pRuleKey
+	 *            the key of the rule.
+	 * @param pEngine
+	 *            the engine of the file.
+	 * @param pAnalysisMetrics
+	 *            the metrics of the analysis, <code>null</code> if there are
+	 *            none.
+	 * @param pMaxFileMillis
+	 *            the milliseconds the rule may spend on the file,
+	 *            <code>0</code> for no limit.
+	 * @param pMaxCandidateTokens
+	 *            the number of tokens the rule may inspect in the file,
+	 *            <code>0</code> for no limit.
+	 */
+	void beginFile(String pRuleKey, NoWhitespaceEngine pEngine, AnalysisMetrics pAnalysisMetrics, int pMaxFileMillis,
+			int pMaxCandidateTokens) {
+		ruleKey = pRuleKey;
+		engine = pEngine;
+		maxFileMillis = pMaxFileMillis;
+		maxCandidateTokens = pMaxCandidateTokens;
+
+		analysisMetrics = pAnalysisMetrics != null && pAnalysisMetrics.isActive() ? pAnalysisMetrics : null;
+		metrics = analysisMetrics != null && analysisMetrics.isEnabled() ? analysisMetrics.forRule(pRuleKey) : null;
+
+		slowTokenEventEnabled = SlowTokenEvent.isTypeEnabled();
+		fileEvent = null;
+		if (CheckFileEvent.isTypeEnabled()) {
+			fileEvent = new CheckFileEvent();
+			fileEvent.begin();
+		}
+		filePath = fileEvent != null || slowTokenEventEnabled ? pEngine.getFilePath() : null;
+
+		instrumented = analysisMetrics != null || fileEvent != null || maxFileMillis > 0;
+		visitedNodes = 0;
+		inspectedTokens = 0;
+		raisedIssues = 0;
+		spentNanos = 0;
+		visitStartNanos = 0;
+	}
+
+	/**
+	 * Counts the visitor time of the file into the metrics and commits the
+	 * file event.
+	 */
+	void endFile() {
+		if (analysisMetrics != null) {
+			if (metrics != null) {
+				metrics.addFile(visitedNodes, inspectedTokens, raisedIssues, spentNanos, engine.getTextLength());
+				metrics = null;
+			}
+			engine.addSpentNanos(analysisMetrics, spentNanos);
+			analysisMetrics = null;
+		}
+		if (fileEvent != null) {
+			fileEvent.commit(ruleKey, filePath, engine.getLineCount(), visitedNodes, inspectedTokens, raisedIssues,
+					spentNanos);
+			fileEvent = null;
+		}
+		engine = null;
+	}
+
+	/**
+	 * Starts timing a node visit.
+	 */
+	void beginVisit() {
+		if (instrumented) {
+			visitStartNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Ends timing a node visit.
+	 */
+	void endVisit() {
+		if (instrumented) {
+			spentNanos += System.nanoTime() - visitStartNanos;
+			visitStartNanos = 0;
+			visitedNodes++;
+		}
+	}
+
+	/**
+	 * Counts a token to be inspected.
+	 *
+	 * @return <code>true</code> if that exceeds the budget of the file.
+	 */
+	boolean countToken() {
+		inspectedTokens++;
+		return isBudgetExceeded();
+	}
+
+	/**
+	 * Counts a reported issue.
+	 */
+	void countIssue() {
+		if (instrumented) {
+			raisedIssues++;
+		}
+	}
+
+	/**
+	 * Checks the budget of the file, including the time spent in the node
+	 * visit that is running.
+	 *
+	 * @return <code>true</code> if the budget is exceeded.
+	 */
+	boolean isBudgetExceeded() {
+		return isCandidateTokensExceeded()
+				|| maxFileMillis > 0 && spentNanos + (visitStartNanos == 0 ? 0 : System.nanoTime() - visitStartNanos)
+						> TimeUnit.MILLISECONDS.toNanos(maxFileMillis);
+	}
+
+	/**
+	 * @return the exceeded budget for the log and the issue on the file.
+	 */
+	String getExceededBudget() {
+		return isCandidateTokensExceeded() ? maxCandidateTokens + " candidate tokens" : maxFileMillis + " ms";
+	}
+
+	private boolean isCandidateTokensExceeded() {
+		return maxCandidateTokens > 0 && inspectedTokens > maxCandidateTokens;
+	}
+
+	/**
+	 * Starts the flight recorder event of a token.
+	 *
+	 * @return the event, <code>null</code> if the event is not recorded.
+	 */
+	SlowTokenEvent beginSlowTokenEvent() {
+		SlowTokenEvent result = null;
+		if (slowTokenEventEnabled) {
+			result = new SlowTokenEvent();
+			result.begin();
+		}
+		return result;
+	}
+
+	/**
+	 * Commits the flight recorder event of a token.
+	 *
+	 * @param pSlowTokenEvent
+	 *            the event, <code>null</code> if the event is not recorded.
+	 * @param pSyntaxToken
+	 *            the inspected token.
+	 * @param pSide
+	 *            the inspected side of the token: <code>before</code> or
+	 *            <code>after</code>.
+	 */
+	void commitSlowTokenEvent(SlowTokenEvent pSlowTokenEvent, SyntaxToken pSyntaxToken, String pSide) {
+		if (pSlowTokenEvent != null) {
+			final Tree owner = pSyntaxToken.parent();
+			pSlowTokenEvent.commit(ruleKey, filePath, pSyntaxToken.text(), owner == null ? null : owner.kind().name(),
+					pSide, pSyntaxToken.range().start().line(), pSyntaxToken.range().start().column());
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.sonar.plugins.java.api.tree.AnnotationTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.IdentifierTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.TypeTree;
+
+/**
+ * Detects generated code from the tree of a file, without loading its source
+ * text. A file is generated if one of its top-level types is annotated with
+ * <code>@Generated</code> (of any package, e.g. <code>javax.annotation</code>
+ * or <code>javax.annotation.processing</code>) or if a comment before its
+ * first token contains one of the configured markers.
+ */
+final class GeneratedCode {
+
+	private static final String GENERATED_ANNOTATION = "Generated";
+
+	private final List<String> markers;
+
+	/**
+	 * @param pMarkers
+	 *            the comma separated markers of a generated file header,
+	 *            matched case-insensitively.
+	 */
+	GeneratedCode(String pMarkers) {
+		final List<String> headerMarkers = new ArrayList<>();
+		for (final String marker : pMarkers.split(",")) {
+			if (!marker.isBlank()) {
+				headerMarkers.add(marker.trim().toLowerCase(Locale.ROOT));
+			}
+		}
+		markers = Collections.unmodifiableList(headerMarkers);
+	}
+
+	/**
+	 * Checks if a file is generated.
+	 *
+	 * @param pCompilationUnitTree
+	 *            the tree of the file.
+	 * @return <code>true</code> if the file is generated.
+	 */
+	boolean isGenerated(CompilationUnitTree pCompilationUnitTree) {
+		return hasHeaderMarker(pCompilationUnitTree.firstToken()) || hasGeneratedType(pCompilationUnitTree);
+	}
+
+	private boolean hasHeaderMarker(SyntaxToken pFirstToken) {
+		boolean result = false;
+
+		if (pFirstToken != null) {
+			for (final SyntaxTrivia trivia : pFirstToken.trivias()) {
+				final String comment = trivia.comment().toLowerCase(Locale.ROOT);
+				for (final String marker : markers) {
+					result |= comment.contains(marker);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static boolean hasGeneratedType(CompilationUnitTree pCompilationUnitTree) {
+		boolean result = false;
+
+		for (final Tree type : pCompilationUnitTree.types()) {
+			if (type instanceof ClassTree) {
+				for (final AnnotationTree annotation : ((ClassTree) type).modifiers().annotations()) {
+					result |= GENERATED_ANNOTATION.equals(getSimpleName(annotation.annotationType()));
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private static String getSimpleName(TypeTree pTypeTree) {
+		String result = null;
+
+		if (pTypeTree instanceof IdentifierTree) {
+			result = ((IdentifierTree) pTypeTree).name();
+
+		} else if (pTypeTree instanceof MemberSelectExpressionTree) {
+			result = ((MemberSelectExpressionTree) pTypeTree).identifier().name();
+		}
+
+		return result;
+	}
+}
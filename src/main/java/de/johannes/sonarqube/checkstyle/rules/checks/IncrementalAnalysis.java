@@ -0,0 +1,136 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.List;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.IncrementalResults.ChangedRegion;
+import de.johannes.sonarqube.checkstyle.rules.checks.ResultCache.CachedIssue;
+
+/**
+ * Incremental analysis of a file by a rule. The lines of the file are
+ * compared with the ones of the previous analysis kept by the
+ * {@link IncrementalResults}; the issues outside of the changed region are
+ * carried over and only the region is evaluated again. If any of the issues
+ * cannot be found in the new version, the file is analyzed in full.
+ */
+final class IncrementalAnalysis {
+
+	private final IncrementalResults incrementalResults;
+	/** Key of the rule and the file. */
+	private final String key;
+	private final String fingerprint;
+	private final long[] lineHashes;
+	/** Lines evaluated again, <code>null</code> if all lines are. */
+	private ChangedRegion changedRegion;
+
+	private IncrementalAnalysis(IncrementalResults pIncrementalResults, String pKey, String pFingerprint,
+			long[] pLineHashes) {
+		incrementalResults = pIncrementalResults;
+		key = pKey;
+		fingerprint = pFingerprint;
+		lineHashes = pLineHashes;
+	}
+
+	/**
+	 * Starts the incremental analysis of a file.
+	 *
+	 * @param pIncrementalResults
+	 *            the results of the recently analyzed files, <code>null</code>
+	 *            if there are none.
+	 * @param pContext
+	 *            the context of the file.
+	 * @param pRuleKey
+	 *            the key of the rule.
+	 * @param pRule
+	 *            the rule, whose rule properties are fingerprinted.
+	 * @param pEngine
+	 *            the engine of the file.
+	 * @return the incremental analysis, <code>null</code> if there are no
+	 *         results or the context has no input file.
+	 */
+	static IncrementalAnalysis of(IncrementalResults pIncrementalResults, JavaFileScannerContext pContext,
+			String pRuleKey, Object pRule, NoWhitespaceEngine pEngine) {
+		final InputFile inputFile = pContext.getInputFile();
+
+		IncrementalAnalysis result = null;
+		if (pIncrementalResults != null && inputFile != null) {
+			result = new IncrementalAnalysis(pIncrementalResults, pRuleKey + ":" + inputFile.key(),
+					ResultCache.fingerprint(pRule), pEngine.getSourceModel().computeLineHashes());
+		}
+		return result;
+	}
+
+	/**
+	 * Carries the issues outside of the changed region over, if the rule
+	 * analyzed a previous version of the file with the same rule properties.
+	 * The issues are recorded and reported like the ones raised by the rule.
+	 *
+	 * @param pCheck
+	 *            the rule.
+	 * @param pTokenStream
+	 *            the tokens of the file.
+	 */
+	void carryOverIssues(NoWhitespaceCheck pCheck, TokenStream pTokenStream) {
+		final ChangedRegion region = incrementalResults.diff(key, fingerprint, lineHashes);
+		final List<CachedIssue> unchangedIssues = region == null ? null : region.getUnchangedIssues();
+		final List<Tree> reportTrees = unchangedIssues == null ? null : pTokenStream.findReportTrees(unchangedIssues);
+
+		if (reportTrees != null) {
+			for (int i = 0; i < unchangedIssues.size(); i++) {
+				final CachedIssue unchangedIssue = unchangedIssues.get(i);
+				pCheck.recordAndReportIssue(reportTrees.get(i), unchangedIssue.getLine(), unchangedIssue.getColumn(),
+						unchangedIssue.getMessage());
+			}
+			changedRegion = region;
+		}
+	}
+
+	/**
+	 * @param pTree
+	 *            a node.
+	 * @return <code>true</code> if any line of the node is evaluated again.
+	 */
+	boolean isInChangedRegion(Tree pTree) {
+		boolean result = true;
+
+		if (changedRegion != null) {
+			final SyntaxToken firstToken = pTree.firstToken();
+			final SyntaxToken lastToken = pTree.lastToken();
+			result = firstToken != null && lastToken != null
+					&& changedRegion.intersects(firstToken.range().start().line(), lastToken.range().end().line());
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param pSyntaxToken
+	 *            a token.
+	 * @return <code>true</code> if the line of the token is evaluated again.
+	 */
+	boolean isInChangedRegion(SyntaxToken pSyntaxToken) {
+		return changedRegion == null || changedRegion.contains(pSyntaxToken.range().start().line());
+	}
+
+	/**
+	 * Keeps the issues of the file for its next analysis.
+	 *
+	 * @param pIssues
+	 *            all issues of the file, including the carried over ones.
+	 */
+	void endFile(List<CachedIssue> pIssues) {
+		incrementalResults.put(key, fingerprint, lineHashes, pIssues);
+	}
+
+	/**
+	 * Forgets the results of the file, because the rule stopped analyzing it
+	 * and its issues are incomplete.
+	 */
+	void abort() {
+		incrementalResults.remove(key);
+	}
+}
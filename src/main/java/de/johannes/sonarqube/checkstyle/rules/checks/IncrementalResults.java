@@ -0,0 +1,222 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sonar.api.scanner.ScannerSide;
+import org.sonarsource.api.sonarlint.SonarLintSide;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.ResultCache.CachedIssue;
+
+/**
+ * Results of the rules for the files they analyzed most recently: the hash of
+ * each line and the issues raised. SonarLint analyzes the file being edited
+ * again and again; comparing the lines of the new version with the ones of the
+ * previous version yields the changed region, so only the region has to be
+ * evaluated again and the issues elsewhere are carried over.
+ * <p>
+ * SonarLint creates the rules anew for each analysis, so the results are kept
+ * by a component that lives as long as the SonarLint instance. The component
+ * is injected into the
+ * {@link de.johannes.sonarqube.checkstyle.rules.plugin.JavaFileCheckRegistrar},
+ * which hands it to the rules it creates, so the rules only carry over results
+ * of their own SonarLint instance. A rule without the component analyzes every
+ * file in full. A SonarQube analysis creates the component anew for each
+ * analysis, so nothing is carried over there either. The results are kept per
+ * rule and file together with the fingerprint of the rule properties, so
+ * results of other properties are never carried over.
+ * <p>
+ * The changed region is extended by a margin of {@value #MARGIN_LINES} lines,
+ * which covers the whitespace spanning a line break and the look-behind of
+ * the rules. A token outside the margin whose issue depends on a tree edited
+ * further away, e.g. the semicolons of a <code>for (;;)</code> spread over
+ * many lines, keeps its previous result until the file is analyzed in full
+ * again.
+ */
+@ScannerSide
+@SonarLintSide(lifespan = SonarLintSide.MULTIPLE_ANALYSES)
+public final class IncrementalResults {
+
+	/** Number of lines evaluated again around the changed lines. */
+	static final int MARGIN_LINES = 2;
+
+	/** Number of results of a rule for a file that are kept. */
+	private static final int MAX_FILE_RESULTS = 32;
+
+	private final Map<String, FileResult> fileResults = new LinkedHashMap<String, FileResult>(MAX_FILE_RESULTS,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, FileResult> pEldest) {
+			return size() > MAX_FILE_RESULTS;
+		}
+	};
+
+	/**
+	 * Compares the lines of a file with the ones of its previous analysis by
+	 * a rule.
+	 *
+	 * @param pKey
+	 *            the key of the rule and the file.
+	 * @param pFingerprint
+	 *            the fingerprint of the rule properties.
+	 * @param pLineHashes
+	 *            the hash of each line of the file.
+	 * @return the changed region, <code>null</code> if the rule has not
+	 *         analyzed the file with the same rule properties before.
+	 */
+	synchronized ChangedRegion diff(String pKey, String pFingerprint, long[] pLineHashes) {
+		final FileResult previous = fileResults.get(pKey);
+
+		ChangedRegion result = null;
+		if (previous != null && previous.fingerprint.equals(pFingerprint)) {
+			final long[] previousHashes = previous.lineHashes;
+			final int commonLength = Math.min(previousHashes.length, pLineHashes.length);
+
+			int prefix = 0;
+			while (prefix < commonLength && previousHashes[prefix] == pLineHashes[prefix]) {
+				prefix++;
+			}
+			int suffix = 0;
+			while (suffix < commonLength - prefix
+					&& previousHashes[previousHashes.length - 1 - suffix] == pLineHashes[pLineHashes.length - 1 - suffix]) {
+				suffix++;
+			}
+
+			result = Arrays.equals(previousHashes, pLineHashes) ? new ChangedRegion(previous.issues)
+					: new ChangedRegion(prefix, previousHashes.length - suffix, pLineHashes.length - suffix,
+							previous.issues);
+		}
+		return result;
+	}
+
+	/**
+	 * Keeps the results of a rule for a file for its next analysis.
+	 *
+	 * @param pKey
+	 *            the key of the rule and the file.
+	 * @param pFingerprint
+	 *            the fingerprint of the rule properties.
+	 * @param pLineHashes
+	 *            the hash of each line of the file.
+	 * @param pIssues
+	 *            the issues raised on the file.
+	 */
+	synchronized void put(String pKey, String pFingerprint, long[] pLineHashes, List<CachedIssue> pIssues) {
+		fileResults.put(pKey, new FileResult(pFingerprint, pLineHashes, new ArrayList<>(pIssues)));
+	}
+
+	/**
+	 * Forgets the results of a rule for a file, e.g. because they are
+	 * incomplete.
+	 *
+	 * @param pKey
+	 *            the key of the rule and the file.
+	 */
+	synchronized void remove(String pKey) {
+		fileResults.remove(pKey);
+	}
+
+	/**
+	 * The fingerprint of the rule properties, the hash of each line of a file
+	 * and the issues raised on it.
+	 */
+	private static final class FileResult {
+		private final String fingerprint;
+		private final long[] lineHashes;
+		private final List<CachedIssue> issues;
+
+		FileResult(String pFingerprint, long[] pLineHashes, List<CachedIssue> pIssues) {
+			fingerprint = pFingerprint;
+			lineHashes = pLineHashes;
+			issues = pIssues;
+		}
+	}
+
+	/**
+	 * The lines of a file to evaluate again, including the margin, and the
+	 * issues of the previous analysis outside of them, moved to the lines of
+	 * the new version.
+	 */
+	static final class ChangedRegion {
+		/** First line (1-based) to evaluate again. */
+		private final int firstLine;
+		/** Last line (1-based, inclusive) to evaluate again. */
+		private final int lastLine;
+		private final List<CachedIssue> unchangedIssues;
+
+		/**
+		 * Creates the empty region of an unchanged file.
+		 */
+		ChangedRegion(List<CachedIssue> pIssues) {
+			firstLine = 1;
+			lastLine = 0;
+			unchangedIssues = Collections.unmodifiableList(pIssues);
+		}
+
+		/**
+		 * Creates the region of a changed file.
+		 *
+		 * @param pPrefixLines
+		 *            the number of unchanged lines at the start.
+		 * @param pPreviousEnd
+		 *            the end (0-based, exclusive) of the changed lines in the
+		 *            previous version.
+		 * @param pEnd
+		 *            the end (0-based, exclusive) of the changed lines in the
+		 *            new version.
+		 * @param pPreviousIssues
+		 *            the issues of the previous version.
+		 */
+		ChangedRegion(int pPrefixLines, int pPreviousEnd, int pEnd, List<CachedIssue> pPreviousIssues) {
+			firstLine = pPrefixLines + 1 - MARGIN_LINES;
+			lastLine = pEnd + MARGIN_LINES;
+
+			final int lineDelta = pEnd - pPreviousEnd;
+			final List<CachedIssue> issues = new ArrayList<>();
+			for (final CachedIssue issue : pPreviousIssues) {
+				if (issue.getLine() < firstLine) {
+					issues.add(issue);
+
+				} else if (issue.getLine() > pPreviousEnd + MARGIN_LINES) {
+					issues.add(new CachedIssue(issue.getLine() + lineDelta, issue.getColumn(), issue.getReportKind(),
+							issue.getMessage()));
+				}
+			}
+			unchangedIssues = Collections.unmodifiableList(issues);
+		}
+
+		/**
+		 * @param pLine
+		 *            the line (1-based).
+		 * @return <code>true</code> if the line is evaluated again.
+		 */
+		boolean contains(int pLine) {
+			return firstLine <= pLine && pLine <= lastLine;
+		}
+
+		/**
+		 * @param pFirstLine
+		 *            the first line (1-based).
+		 * @param pLastLine
+		 *            the last line (1-based, inclusive).
+		 * @return <code>true</code> if any of the lines is evaluated again.
+		 */
+		boolean intersects(int pFirstLine, int pLastLine) {
+			return pFirstLine <= lastLine && firstLine <= pLastLine;
+		}
+
+		/**
+		 * @return the issues outside of the region, on the lines of the new
+		 *         version.
+		 */
+		List<CachedIssue> getUnchangedIssues() {
+			return unchangedIssues;
+		}
+	}
+}
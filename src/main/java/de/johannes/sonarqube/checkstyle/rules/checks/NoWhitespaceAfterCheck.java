@@ -3,9 +3,12 @@ package de.johannes.sonarqube.checkstyle.rules.checks;
 import static java.util.Map.entry;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
@@ -59,49 +62,42 @@ public class NoWhitespaceAfterCheck extends NoWhitespaceCheck {
 	@RuleProperty(key = "unaryPlus", description = "Unary Plus '+i'", defaultValue = "true")
 	private boolean unaryPlusDefault = true;
 
-	private final List<Kind> afterKindGroup = Arrays.asList(Kind.ANNOTATION,
-			Kind.BITWISE_COMPLEMENT,
-			Kind.LOGICAL_COMPLEMENT,
-			Kind.MEMBER_SELECT,
-			Kind.METHOD_REFERENCE,
-			Kind.NEW_ARRAY,
-			Kind.PREFIX_DECREMENT,
-			Kind.PREFIX_INCREMENT,
-			Kind.SYNCHRONIZED_STATEMENT,
-			Kind.TYPE_CAST,
-			Kind.UNARY_MINUS,
-			Kind.UNARY_PLUS);
-	private final List<Kind> beforeKindGroup = Arrays.asList(Kind.ARRAY_ACCESS_EXPRESSION, Kind.ARRAY_TYPE);
-	private Map<Kind, KindAttributes> kindMap;
+	private static final Set<Kind> BEFORE_KIND_GROUP = Collections
+			.unmodifiableSet(EnumSet.of(Kind.ARRAY_ACCESS_EXPRESSION, Kind.ARRAY_TYPE));
+
+	private KindConfiguration kindConfiguration;
 
 	@Override
 	public List<Kind> nodesToVisit() {
-		final List<Kind> kindsToVisit = new ArrayList<>();
-		kindsToVisit.addAll(afterKindGroup);
-		kindsToVisit.addAll(beforeKindGroup);
-
-		return kindsToVisit;
+		return new ArrayList<>(getKindConfiguration().getEnabledKinds());
 	}
 
 	@Override
-	public void visitNode(Tree pTree) {
-		super.visitNode(pTree);
-
-		kindMap = createKindMap();
+	protected void checkNode(Tree pTree) {
 		final SyntaxToken tokenUnderTest = getTokenUnderTest(pTree);
 
 		if (tokenUnderTest != null) {
 			final boolean hasWhitespace = isInBeforeKindGroup(pTree) ? hasWhitespaceBefore(tokenUnderTest)
 					: hasWhitespaceAfter(pTree, tokenUnderTest);
-			final boolean considerToken = kindMap.get(pTree.kind()).getConsider();
 
-			if (hasWhitespace && considerToken) {
-				reportIssue(pTree,
-						String.format("'%s' is followed by whitespace.", kindMap.get(pTree.kind()).getMsgToken()));
+			if (hasWhitespace) {
+				raiseIssue(pTree, tokenUnderTest, getKindConfiguration().getMessage(pTree.kind()));
 			}
 		}
 	}
 
+	/**
+	 * Gets the configuration compiled from the rule properties. The rule
+	 * properties are injected before the analysis starts and don't change
+	 * afterwards, so the configuration is compiled only once.
+	 */
+	private KindConfiguration getKindConfiguration() {
+		if (kindConfiguration == null) {
+			kindConfiguration = new KindConfiguration(createKindMap());
+		}
+		return kindConfiguration;
+	}
+
 	/**
 	 * Get the token to check for neighboring whitespace, if e.g. '++'.
 	 */
@@ -140,7 +136,7 @@ public class NoWhitespaceAfterCheck extends NoWhitespaceCheck {
 
 		} else if (pTree.is(Kind.ARRAY_TYPE)) {
 			final SyntaxToken openBracketToken = ((ArrayTypeTree) pTree).openBracketToken();
-			if (!isRegExMatchingLeftSidedCharsOfToken(openBracketToken, REGEX_PRECEDING_ANNOTATION)) {
+			if (!isPrecededByAnnotation(openBracketToken)) {
 				tokenUnderTest = openBracketToken;
 			}
 
@@ -154,12 +150,11 @@ public class NoWhitespaceAfterCheck extends NoWhitespaceCheck {
 	private boolean hasWhitespaceAfter(Tree pTree, SyntaxToken pSyntaxToken) {
 		boolean result = false;
 
-		final boolean lineBreakAfterToken = isRegExMatchingRightSidedCharsOfToken(pSyntaxToken, "\\R");
-		if (!lineBreakAfterToken && !isLineBreakBetweenTypeCastParenthesis(pTree)) {
-			result = isRegExMatchingRightSidedCharsOfToken(pSyntaxToken, "\\s");
+		if (isLineBreakBetweenTypeCastParenthesis(pTree)) {
+			result = !getAllowLineBreaks();
 
 		} else {
-			result = !getAllowLineBreaks();
+			result = hasWhitespaceAfter(pSyntaxToken);
 		}
 
 		return result;
@@ -177,8 +172,8 @@ public class NoWhitespaceAfterCheck extends NoWhitespaceCheck {
 	}
 
 	/**
-	 * Method to create KindMap at runtime to make user's SonarQube
-	 * customizations of public values take effect.
+	 * Method to create KindMap after the injection of the rule properties to
+	 * make user's SonarQube customizations of public values take effect.
 	 */
 	private Map<Kind, KindAttributes> createKindMap() {
 		return Map.ofEntries(
@@ -201,7 +196,7 @@ public class NoWhitespaceAfterCheck extends NoWhitespaceCheck {
 	}
 
 	private boolean isInBeforeKindGroup(Tree pTree) {
-		return pTree.is(beforeKindGroup.toArray(new Kind[0]));
+		return BEFORE_KIND_GROUP.contains(pTree.kind());
 	}
 
 	/**
@@ -226,4 +221,37 @@ public class NoWhitespaceAfterCheck extends NoWhitespaceCheck {
 
 	}
 
+	/**
+	 * Immutable configuration compiled from the kind map: the kinds to
+	 * consider and their issue messages. The messages are interned, so all
+	 * instances of the rule report the same string.
+	 */
+	static final class KindConfiguration {
+		private final Set<Kind> enabledKinds;
+		private final Map<Kind, String> messages;
+
+		KindConfiguration(Map<Kind, KindAttributes> pKindMap) {
+			final Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+			final Map<Kind, String> kindMessages = new EnumMap<>(Kind.class);
+
+			pKindMap.forEach((kind, attributes) -> {
+				if (attributes.getConsider()) {
+					kinds.add(kind);
+					kindMessages.put(kind, ("'" + attributes.getMsgToken() + "' is followed by whitespace.").intern());
+				}
+			});
+
+			enabledKinds = Collections.unmodifiableSet(kinds);
+			messages = Collections.unmodifiableMap(kindMessages);
+		}
+
+		Set<Kind> getEnabledKinds() {
+			return enabledKinds;
+		}
+
+		String getMessage(Kind pKind) {
+			return messages.get(pKind);
+		}
+	}
+
 }
@@ -3,22 +3,58 @@ package de.johannes.sonarqube.checkstyle.rules.checks;
 import static java.util.Map.entry;
 import static java.util.Objects.isNull;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
+import org.sonar.plugins.java.api.tree.Arguments;
+import org.sonar.plugins.java.api.tree.ArrayTypeTree;
+import org.sonar.plugins.java.api.tree.AssertStatementTree;
+import org.sonar.plugins.java.api.tree.BreakStatementTree;
+import org.sonar.plugins.java.api.tree.CaseLabelTree;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.ContinueStatementTree;
+import org.sonar.plugins.java.api.tree.DoWhileStatementTree;
+import org.sonar.plugins.java.api.tree.EmptyStatementTree;
+import org.sonar.plugins.java.api.tree.EnumConstantTree;
+import org.sonar.plugins.java.api.tree.ExportsDirectiveTree;
+import org.sonar.plugins.java.api.tree.ExpressionStatementTree;
 import org.sonar.plugins.java.api.tree.ExpressionTree;
 import org.sonar.plugins.java.api.tree.ForStatementTree;
+import org.sonar.plugins.java.api.tree.ImportTree;
 import org.sonar.plugins.java.api.tree.LabeledStatementTree;
 import org.sonar.plugins.java.api.tree.ListTree;
+import org.sonar.plugins.java.api.tree.MemberSelectExpressionTree;
 import org.sonar.plugins.java.api.tree.MethodReferenceTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.ModuleDeclarationTree;
+import org.sonar.plugins.java.api.tree.ModuleNameTree;
+import org.sonar.plugins.java.api.tree.NewArrayTree;
+import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.OpensDirectiveTree;
+import org.sonar.plugins.java.api.tree.PackageDeclarationTree;
+import org.sonar.plugins.java.api.tree.ProvidesDirectiveTree;
+import org.sonar.plugins.java.api.tree.RequiresDirectiveTree;
+import org.sonar.plugins.java.api.tree.ReturnStatementTree;
 import org.sonar.plugins.java.api.tree.StatementTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.ThrowStatementTree;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
+import org.sonar.plugins.java.api.tree.TryStatementTree;
+import org.sonar.plugins.java.api.tree.TypeArguments;
+import org.sonar.plugins.java.api.tree.TypeParameters;
 import org.sonar.plugins.java.api.tree.UnaryExpressionTree;
+import org.sonar.plugins.java.api.tree.UsesDirectiveTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+import org.sonar.plugins.java.api.tree.YieldStatementTree;
 
 /**
  * This SonarQube rule implements Checkstyle's <a href=
@@ -49,30 +85,72 @@ public class NoWhitespaceBeforeCheck extends NoWhitespaceCheck {
 	@RuleProperty(key = "postfixIncrement", description = "Postfix Increment 'i++'", defaultValue = "true")
 	private boolean postfixIncrementDefault = true;
 
+	/** Kinds of the trees owning the tokens of the token map. */
+	private static final Map<String, Set<Kind>> TOKEN_OWNER_KINDS = Map.ofEntries(
+	//@formatter:off
+			entry(".", EnumSet.of(Kind.MEMBER_SELECT, Kind.NEW_CLASS, Kind.MODULE, Kind.REQUIRES_DIRECTIVE,
+					Kind.EXPORTS_DIRECTIVE, Kind.OPENS_DIRECTIVE)),
+			entry("...", EnumSet.of(Kind.ARRAY_TYPE)),
+			entry(",", EnumSet.of(Kind.ARGUMENTS, Kind.VARIABLE, Kind.TYPE_ARGUMENTS, Kind.TYPE_PARAMETERS,
+					Kind.NEW_ARRAY, Kind.ENUM_CONSTANT, Kind.METHOD, Kind.CONSTRUCTOR, Kind.CLASS, Kind.INTERFACE,
+					Kind.ENUM, Kind.RECORD, Kind.FOR_STATEMENT, Kind.CASE_LABEL, Kind.EXPORTS_DIRECTIVE,
+					Kind.OPENS_DIRECTIVE, Kind.PROVIDES_DIRECTIVE)),
+			entry(";", EnumSet.of(Kind.VARIABLE, Kind.EXPRESSION_STATEMENT, Kind.RETURN_STATEMENT,
+					Kind.BREAK_STATEMENT, Kind.CONTINUE_STATEMENT, Kind.THROW_STATEMENT, Kind.DO_STATEMENT,
+					Kind.EMPTY_STATEMENT, Kind.ASSERT_STATEMENT, Kind.YIELD_STATEMENT, Kind.IMPORT, Kind.PACKAGE,
+					Kind.METHOD, Kind.FOR_STATEMENT, Kind.TRY_STATEMENT, Kind.ENUM_CONSTANT, Kind.REQUIRES_DIRECTIVE,
+					Kind.EXPORTS_DIRECTIVE, Kind.OPENS_DIRECTIVE, Kind.USES_DIRECTIVE, Kind.PROVIDES_DIRECTIVE)),
+			entry("<", EnumSet.of(Kind.TYPE_ARGUMENTS, Kind.TYPE_PARAMETERS)),
+			entry(">", EnumSet.of(Kind.TYPE_ARGUMENTS, Kind.TYPE_PARAMETERS)));
+	//@formatter:on
+
+	/** Texts of the tokens of the kind map. */
+	private static final Map<Kind, String> KIND_TOKENS = Map.of(Kind.POSTFIX_DECREMENT, "--",
+			Kind.POSTFIX_INCREMENT, "++", Kind.LABELED_STATEMENT, ":", Kind.METHOD_REFERENCE, "::");
+
+	/** Issue messages by the texts of the enabled tokens. */
+	private Map<String, String> tokenMessages;
+	private Set<Kind> enabledTokenOwnerKinds;
+	private Set<Kind> enabledKinds;
+	/** Issue messages by the enabled kinds. */
+	private Map<Kind, String> kindMessages;
+
+	/** Reused buffer for the candidate tokens of a visited tree. */
+	private final List<SyntaxToken> candidateTokens = new ArrayList<>();
+
 	@Override
 	public List<Kind> nodesToVisit() {
-		return Arrays.asList(Kind.TOKEN,
-				Kind.POSTFIX_DECREMENT,
-				Kind.POSTFIX_INCREMENT,
-				Kind.LABELED_STATEMENT,
-				Kind.METHOD_REFERENCE);
+		compileConfiguration();
+
+		final Set<Kind> kindsToVisit = EnumSet.noneOf(Kind.class);
+		kindsToVisit.addAll(enabledTokenOwnerKinds);
+		kindsToVisit.addAll(enabledKinds);
+
+		return new ArrayList<>(kindsToVisit);
 	}
 
-	/*
-	 * Handling , ; ... < >
-	 */
 	@Override
-	public void visitToken(SyntaxToken pSyntaxToken) {
-		super.visitToken(pSyntaxToken);
-
-		final SyntaxToken tokenUnderTest = getTokenUnderTest(pSyntaxToken);
+	protected void checkNode(Tree pTree) {
+		if (enabledTokenOwnerKinds.contains(pTree.kind())) {
+			visitTokenOwner(pTree);
+		}
+		if (enabledKinds.contains(pTree.kind())) {
+			visitKind(pTree);
+		}
+	}
 
-		if (tokenUnderTest != null) {
-			final Boolean considerToken = createTokenMap().get(tokenUnderTest.text());
+	/*
+	 * Handling , ; . ... < >
+	 */
+	private void visitTokenOwner(Tree pTree) {
+		candidateTokens.clear();
+		collectCandidateTokens(pTree);
 
-			if (hasWhitespaceBefore(tokenUnderTest) && Boolean.TRUE.equals(considerToken)) {
-				reportIssue(pSyntaxToken.parent(),
-						String.format("'%s' is preceded by whitespace.", tokenUnderTest.text()));
+		for (final SyntaxToken candidateToken : candidateTokens) {
+			final String message = tokenMessages.get(candidateToken.text());
+			if (message != null && !isInEmptyForInitializerOrCondition(candidateToken)
+					&& hasWhitespaceBefore(candidateToken)) {
+				raiseIssue(candidateToken.parent(), candidateToken, message);
 			}
 		}
 	}
@@ -80,25 +158,58 @@ public class NoWhitespaceBeforeCheck extends NoWhitespaceCheck {
 	/*
 	 * Handling -- ++ : ::
 	 */
-	@Override
-	public void visitNode(Tree pTree) {
-		super.visitNode(pTree);
-
+	private void visitKind(Tree pTree) {
 		final SyntaxToken tokenUnderTest = getTokenUnderTest(pTree);
 
-		if (tokenUnderTest != null) {
-			final Boolean considerToken = createKindMap().get(pTree.kind());
+		if (tokenUnderTest != null && hasWhitespaceBefore(tokenUnderTest)) {
+			raiseIssue(tokenUnderTest.parent(), tokenUnderTest, kindMessages.get(pTree.kind()));
+		}
+	}
 
-			if (hasWhitespaceBefore(tokenUnderTest) && Boolean.TRUE.equals(considerToken)) {
-				reportIssue(tokenUnderTest.parent(),
-						String.format("'%s' is preceded by whitespace.", tokenUnderTest.text()));
-			}
+	/**
+	 * Compiles the token map and the kind map into the immutable issue
+	 * messages of the enabled tokens and kinds. The rule properties
+	 * are injected before the analysis starts and don't change afterwards, so
+	 * this is done only once.
+	 */
+	private void compileConfiguration() {
+		if (tokenMessages == null) {
+			final Set<Kind> tokenOwnerKinds = EnumSet.noneOf(Kind.class);
+			final Map<String, String> tokenMessageMap = new HashMap<>();
+			createTokenMap().forEach((token, consider) -> {
+				if (Boolean.TRUE.equals(consider)) {
+					tokenOwnerKinds.addAll(TOKEN_OWNER_KINDS.get(token));
+					tokenMessageMap.put(token, createMessage(token));
+				}
+			});
+
+			final Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+			final Map<Kind, String> kindMessageMap = new EnumMap<>(Kind.class);
+			createKindMap().forEach((kind, consider) -> {
+				if (Boolean.TRUE.equals(consider)) {
+					kinds.add(kind);
+					kindMessageMap.put(kind, createMessage(KIND_TOKENS.get(kind)));
+				}
+			});
+
+			enabledTokenOwnerKinds = Collections.unmodifiableSet(tokenOwnerKinds);
+			enabledKinds = Collections.unmodifiableSet(kinds);
+			tokenMessages = Collections.unmodifiableMap(tokenMessageMap);
+			kindMessages = Collections.unmodifiableMap(kindMessageMap);
 		}
 	}
 
 	/**
-	 * Method to create Token Map at runtime to make user's SonarQube
-	 * customizations of public values take effect.
+	 * Creates the issue message of a token. The message is interned, so all
+	 * instances of the rule report the same string.
+	 */
+	private static String createMessage(String pToken) {
+		return ("'" + pToken + "' is preceded by whitespace.").intern();
+	}
+
+	/**
+	 * Method to create Token Map after the injection of the rule properties to
+	 * make user's SonarQube customizations of public values take effect.
 	 * 
 	 * @return token map.
 	 */
@@ -112,8 +223,8 @@ public class NoWhitespaceBeforeCheck extends NoWhitespaceCheck {
 	}
 
 	/**
-	 * Method to create KindMap at runtime to make user's SonarQube
-	 * customizations of public values take effect.
+	 * Method to create KindMap after the injection of the rule properties to
+	 * make user's SonarQube customizations of public values take effect.
 	 * 
 	 * @return kind map.
 	 */
@@ -124,23 +235,192 @@ public class NoWhitespaceBeforeCheck extends NoWhitespaceCheck {
 				entry(Kind.METHOD_REFERENCE, methodReferenceDefault));
 	}
 
-	private SyntaxToken getTokenUnderTest(SyntaxToken pSyntaxToken) {
-		SyntaxToken tokenUnderTest = null;
-		if (hasTokenCharacters(pSyntaxToken, ".", "...", ",", ";") || isGeneric(pSyntaxToken)) {
-			if (!isInEmptyForInitializerOrCondition(pSyntaxToken)) {
-				tokenUnderTest = pSyntaxToken;
+	/**
+	 * Collects the tokens of the token map that are owned by a tree into
+	 * {@link #candidateTokens}.
+	 */
+	private void collectCandidateTokens(Tree pTree) {
+		switch (pTree.kind()) {
+		case MEMBER_SELECT:
+			addCandidateToken(((MemberSelectExpressionTree) pTree).operatorToken());
+			break;
+		case NEW_CLASS:
+			addCandidateToken(((NewClassTree) pTree).dotToken());
+			break;
+		case ARRAY_TYPE:
+			addCandidateToken(((ArrayTypeTree) pTree).ellipsisToken());
+			break;
+		case TYPE_ARGUMENTS:
+			final TypeArguments typeArguments = (TypeArguments) pTree;
+			addCandidateToken(typeArguments.openBracketToken());
+			addCandidateSeparators(typeArguments);
+			addCandidateToken(typeArguments.closeBracketToken());
+			break;
+		case TYPE_PARAMETERS:
+			final TypeParameters typeParameters = (TypeParameters) pTree;
+			addCandidateToken(typeParameters.openBracketToken());
+			addCandidateSeparators(typeParameters);
+			addCandidateToken(typeParameters.closeBracketToken());
+			break;
+		case ARGUMENTS:
+			addCandidateSeparators((Arguments) pTree);
+			break;
+		case VARIABLE:
+			final VariableTree variableTree = (VariableTree) pTree;
+			if (!isInForInitializer(variableTree)) {
+				addCandidateToken(variableTree.endToken());
 			}
+			break;
+		case NEW_ARRAY:
+			addCandidateSeparators(((NewArrayTree) pTree).initializers());
+			break;
+		case ENUM_CONSTANT:
+			addCandidateToken(((EnumConstantTree) pTree).separatorToken());
+			break;
+		case METHOD:
+		case CONSTRUCTOR:
+			final MethodTree methodTree = (MethodTree) pTree;
+			addCandidateSeparators(methodTree.throwsClauses());
+			addCandidateToken(methodTree.semicolonToken());
+			break;
+		case CLASS:
+		case INTERFACE:
+		case ENUM:
+		case RECORD:
+			final ClassTree classTree = (ClassTree) pTree;
+			addCandidateSeparators(classTree.superInterfaces());
+			addCandidateSeparators(classTree.permittedTypes());
+			break;
+		case FOR_STATEMENT:
+			collectForStatementTokens((ForStatementTree) pTree);
+			break;
+		case CASE_LABEL:
+			addCandidateSeparators(((CaseLabelTree) pTree).expressions());
+			break;
+		case TRY_STATEMENT:
+			addCandidateSeparators(((TryStatementTree) pTree).resourceList());
+			break;
+		case EXPRESSION_STATEMENT:
+			addCandidateToken(((ExpressionStatementTree) pTree).semicolonToken());
+			break;
+		case RETURN_STATEMENT:
+			addCandidateToken(((ReturnStatementTree) pTree).semicolonToken());
+			break;
+		case BREAK_STATEMENT:
+			addCandidateToken(((BreakStatementTree) pTree).semicolonToken());
+			break;
+		case CONTINUE_STATEMENT:
+			addCandidateToken(((ContinueStatementTree) pTree).semicolonToken());
+			break;
+		case THROW_STATEMENT:
+			addCandidateToken(((ThrowStatementTree) pTree).semicolonToken());
+			break;
+		case DO_STATEMENT:
+			addCandidateToken(((DoWhileStatementTree) pTree).semicolonToken());
+			break;
+		case EMPTY_STATEMENT:
+			addCandidateToken(((EmptyStatementTree) pTree).semicolonToken());
+			break;
+		case ASSERT_STATEMENT:
+			addCandidateToken(((AssertStatementTree) pTree).semicolonToken());
+			break;
+		case YIELD_STATEMENT:
+			addCandidateToken(((YieldStatementTree) pTree).semicolonToken());
+			break;
+		case IMPORT:
+			addCandidateToken(((ImportTree) pTree).semicolonToken());
+			break;
+		case PACKAGE:
+			addCandidateToken(((PackageDeclarationTree) pTree).semicolonToken());
+			break;
+		case MODULE:
+			addCandidateSeparators(((ModuleDeclarationTree) pTree).moduleName());
+			break;
+		case REQUIRES_DIRECTIVE:
+			addCandidateSeparators(((RequiresDirectiveTree) pTree).moduleName());
+			addCandidateToken(((RequiresDirectiveTree) pTree).semicolonToken());
+			break;
+		case EXPORTS_DIRECTIVE:
+			collectModuleNameTokens(((ExportsDirectiveTree) pTree).moduleNames());
+			addCandidateToken(((ExportsDirectiveTree) pTree).semicolonToken());
+			break;
+		case OPENS_DIRECTIVE:
+			collectModuleNameTokens(((OpensDirectiveTree) pTree).moduleNames());
+			addCandidateToken(((OpensDirectiveTree) pTree).semicolonToken());
+			break;
+		case USES_DIRECTIVE:
+			addCandidateToken(((UsesDirectiveTree) pTree).semicolonToken());
+			break;
+		case PROVIDES_DIRECTIVE:
+			addCandidateSeparators(((ProvidesDirectiveTree) pTree).typeNames());
+			addCandidateToken(((ProvidesDirectiveTree) pTree).semicolonToken());
+			break;
+		default:
+			break;
 		}
-		return tokenUnderTest;
 	}
 
-	private boolean isGeneric(SyntaxToken pSyntaxToken) {
-		final boolean hasGenericCharacter = hasTokenCharacters(pSyntaxToken, "<", ">");
-		final Kind parentKind = pSyntaxToken.parent().kind();
-		final boolean hasValidParent = (parentKind == Kind.TYPE_ARGUMENTS) || (parentKind == Kind.TYPE_PARAMETER)
-				|| (parentKind == Kind.TYPE_PARAMETERS);
+	/**
+	 * Collects the semicolons and the commas of a For Loop. The variables
+	 * declared in the initializer are not collected when visiting them: their
+	 * end tokens may be the separators of the initializer or its semicolon, so
+	 * each token is collected once here.
+	 */
+	private void collectForStatementTokens(ForStatementTree pForStatementTree) {
+		final ListTree<StatementTree> initializer = pForStatementTree.initializer();
+		for (final StatementTree statement : initializer) {
+			if (statement.is(Kind.VARIABLE)) {
+				addCandidateTokenOnce(((VariableTree) statement).endToken());
+			}
+		}
+		for (final SyntaxToken separator : initializer.separators()) {
+			addCandidateTokenOnce(separator);
+		}
+		addCandidateTokenOnce(pForStatementTree.firstSemicolonToken());
+		addCandidateTokenOnce(pForStatementTree.secondSemicolonToken());
+		addCandidateSeparators(pForStatementTree.update());
+	}
+
+	private static boolean isInForInitializer(VariableTree pVariableTree) {
+		Tree parent = pVariableTree.parent();
+		if (parent instanceof ListTree) {
+			parent = parent.parent();
+		}
+		return parent != null && parent.is(Kind.FOR_STATEMENT)
+				&& ((ForStatementTree) parent).initializer().contains(pVariableTree);
+	}
 
-		return hasGenericCharacter && hasValidParent;
+	/**
+	 * Collects the dots of the module names and the commas between them of an
+	 * exports or opens directive.
+	 */
+	private void collectModuleNameTokens(ListTree<ModuleNameTree> pModuleNames) {
+		for (final ModuleNameTree moduleName : pModuleNames) {
+			addCandidateSeparators(moduleName);
+		}
+		addCandidateSeparators(pModuleNames);
+	}
+
+	private void addCandidateToken(SyntaxToken pSyntaxToken) {
+		if (pSyntaxToken != null) {
+			candidateTokens.add(pSyntaxToken);
+		}
+	}
+
+	/**
+	 * Adds a token unless it is a candidate already. Only used for the few
+	 * tokens of a For Loop header, so the linear search is cheap.
+	 */
+	private void addCandidateTokenOnce(SyntaxToken pSyntaxToken) {
+		if (pSyntaxToken != null && !candidateTokens.contains(pSyntaxToken)) {
+			candidateTokens.add(pSyntaxToken);
+		}
+	}
+
+	private void addCandidateSeparators(List<?> pList) {
+		if (pList instanceof ListTree) {
+			candidateTokens.addAll(((ListTree<?>) pList).separators());
+		}
 	}
 
 	private boolean hasTokenCharacters(SyntaxToken pSyntaxToken, String... pTokenCharacters) {
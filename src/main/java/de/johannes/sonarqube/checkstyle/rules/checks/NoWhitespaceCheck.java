@@ -1,53 +1,306 @@
 package de.johannes.sonarqube.checkstyle.rules.checks;
 
-import static java.util.Objects.isNull;
-
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import de.johannes.sonarqube.checkstyle.rules.checks.ResultCache.CachedIssue;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+import de.johannes.sonarqube.checkstyle.rules.metrics.SlowTokenEvent;
+
 /**
  * Abstract class for {@link NoWhitespaceAfterCheck} and
  * {@link NoWhitespaceBeforeCheck}.
+ * <p>
+ * The rules implement {@link #checkNode(Tree)}, which is called for the nodes
+ * they subscribed to. Around it, the rule skips files ({@link FileFilter}),
+ * replays cached issues ({@link ResultCache}), evaluates only the changed
+ * lines of a file again ({@link IncrementalAnalysis}), times the visits and
+ * keeps the budget of a file ({@link FileInstrumentation}) and groups the
+ * violations into issues ({@link AggregatedIssues}).
  */
 public abstract class NoWhitespaceCheck extends IssuableSubscriptionVisitor {
 
 	/** RegEx to check preceding line breaks. */
 	protected static final String REGEX_PRECEDING_LINE_BREAK = "\\R\\s*";
 	/** RegEx to check if there is a preceding annotation. */
-	protected static final String REGEX_PRECEDING_ANNOTATION = ".*@\\w*(\\s*)?";
+	protected static final String REGEX_PRECEDING_ANNOTATION = "@\\w*\\s*";
 	/** RegEx to check preceding whitespace */
 	protected static final String REGEX_PRECEDING_WHITESPACE = "\\s";
 
+	private static final String DEFAULT_GENERATED_CODE_MARKERS = "@generated,do not edit,this file was generated";
+
+	private static final Logger LOG = Loggers.get(NoWhitespaceCheck.class);
+
 	@RuleProperty(key = "allowLineBreaks", description = "Allow line breaks", defaultValue = "true")
 	private boolean allowLineBreaks = true;
-	
-	private final String lineSeperator = System.lineSeparator();
-	private String codeText;
+	@RuleProperty(key = "useTokenRanges", description = "Derive whitespace from the ranges of tokens and comments instead of the source text", defaultValue = "false")
+	private boolean useTokenRanges = false;
+	@RuleProperty(key = "maxFileMillis", description = "Milliseconds the rule may spend on a file before it stops analyzing the file, 0 for no limit", defaultValue = "0")
+	private int maxFileMillis = 0;
+	@RuleProperty(key = "maxCandidateTokens", description = "Number of tokens the rule may inspect in a file before it stops analyzing the file, 0 for no limit", defaultValue = "0")
+	private int maxCandidateTokens = 0;
+	@RuleProperty(key = "raiseIssueOnBudgetExceeded", description = "Raise an issue on a file the rule stopped analyzing because maxFileMillis or maxCandidateTokens was exceeded", defaultValue = "false")
+	private boolean raiseIssueOnBudgetExceeded = false;
+	@RuleProperty(key = "maxFileLines", description = "Files with more lines are skipped, 0 for no limit", defaultValue = "0")
+	private int maxFileLines = 0;
+	@RuleProperty(key = "skipGeneratedCode", description = "Skip files whose top-level types are annotated with @Generated or whose header comment contains one of the generatedCodeMarkers", defaultValue = "false")
+	private boolean skipGeneratedCode = false;
+	@RuleProperty(key = "generatedCodeMarkers", description = "Comma separated markers of the header comment of a generated file, matched case-insensitively", defaultValue = DEFAULT_GENERATED_CODE_MARKERS)
+	private String generatedCodeMarkers = DEFAULT_GENERATED_CODE_MARKERS;
+	@RuleProperty(key = "incrementalAnalysis", description = "Only evaluate the lines changed since the previous analysis of a file again and keep the issues elsewhere, for the repeated analyses of SonarLint", defaultValue = "false")
+	private boolean incrementalAnalysis = false;
+	@RuleProperty(key = "aggregateIssues", description = "Report the violations on the same line or in the same statement as one issue with secondary locations, whose message gives the number of further violations and whose effort to fix is the number of violations: none, line or statement", defaultValue = "none")
+	private String aggregateIssues = "none";
+
+	private NoWhitespaceEngine engine;
+	/** Skipping of files, created from the rule properties on demand. */
+	private FileFilter fileFilter;
+	/** Issues of the rule, created from the rule property on demand. */
+	private AggregatedIssues aggregatedIssues;
+	private final FileInstrumentation instrumentation = new FileInstrumentation();
+
+	/** Cache entry of the file, <code>null</code> if nothing is cached. */
+	private ResultCache resultCache;
+	/** Incremental analysis of the file, <code>null</code> if it is analyzed in full. */
+	private IncrementalAnalysis incrementalFileAnalysis;
+	/** Issues raised on the file to be cached or kept for its next analysis. */
+	private final List<CachedIssue> raisedCachedIssues = new ArrayList<>();
+
+	/** Metrics of the analysis, <code>null</code> if there are none. */
+	private AnalysisMetrics analysisMetrics;
+	/** Results of the recently analyzed files, <code>null</code> if there are none. */
+	private IncrementalResults incrementalResults;
+	/** Listener of the checked tokens of the issues, <code>null</code> if none. */
+	private CheckedTokenListener checkedTokenListener;
 
+	private String ruleKey;
+	/** Whether the rule skips the file or stopped analyzing it. */
+	private boolean skippingFile;
+
+	/**
+	 * Acquires the shared engine of the file to be analyzed and prepares the
+	 * file for the collaborators of the rule. Called before the tree of the
+	 * file is visited.
+	 */
 	@Override
-	public void visitNode(Tree pTree) {
-		initCodeText();
-		super.visitNode(pTree);
+	public void setContext(JavaFileScannerContext pContext) {
+		super.setContext(pContext);
+		engine = NoWhitespaceEngine.acquire(pContext);
+		instrumentation.beginFile(getRuleKey(), engine, analysisMetrics, maxFileMillis, maxCandidateTokens);
+		getAggregatedIssues().clear();
+		raisedCachedIssues.clear();
+
+		skippingFile = getFileFilter().isSkipped(getRuleKey(), engine, pContext.getTree());
+		resultCache = skippingFile ? null
+				: ResultCache.of(pContext, getRuleKey(), this, () -> engine.getContentHash(useTokenRanges));
+		if (resultCache != null && resultCache.replay(getAggregatedIssues(), engine.getTokenStream())) {
+			resultCache = null;
+			skippingFile = true;
+		}
+
+		incrementalFileAnalysis = incrementalAnalysis && !skippingFile
+				? IncrementalAnalysis.of(incrementalResults, pContext, getRuleKey(), this, engine)
+				: null;
+		if (incrementalFileAnalysis != null) {
+			incrementalFileAnalysis.carryOverIssues(this, engine.getTokenStream());
+		}
+	}
+
+	/**
+	 * Reports the aggregated issues of the file and releases the per-file
+	 * state, so that neither a stale code text is read when the instance is
+	 * reused for the next file nor the source of the last file is retained
+	 * after the analysis.
+	 */
+	@Override
+	public void leaveFile(JavaFileScannerContext pContext) {
+		getAggregatedIssues().report();
+		instrumentation.endFile();
+		if (resultCache != null) {
+			resultCache.write(raisedCachedIssues);
+			resultCache = null;
+		}
+		if (incrementalFileAnalysis != null) {
+			incrementalFileAnalysis.endFile(raisedCachedIssues);
+			incrementalFileAnalysis = null;
+		}
+
+		engine = null;
+		NoWhitespaceEngine.release(pContext);
+		super.leaveFile(pContext);
 	}
 
+	/**
+	 * Visits a node the rule subscribed to and checks it with
+	 * {@link #checkNode(Tree)}, unless the file is skipped or the node is
+	 * outside of the changed region of an incremental analysis. Once the
+	 * budget of the file is exceeded, the remaining nodes are skipped. A
+	 * subclass that overrides this method instead of {@link #checkNode(Tree)}
+	 * bypasses all of this.
+	 */
 	@Override
-	public void visitToken(SyntaxToken pSyntaxToken) {
-		initCodeText();
-		super.visitToken(pSyntaxToken);
+	public void visitNode(Tree pTree) {
+		if (!skippingFile && isInChangedRegion(pTree)) {
+			instrumentation.beginVisit();
+			checkNode(pTree);
+			instrumentation.endVisit();
+
+			if (!skippingFile && instrumentation.isBudgetExceeded()) {
+				stopAnalyzingFile();
+			}
+		}
 	}
 
-	private void initCodeText() {
-		if (isNull(codeText)) {
-			codeText = context.getFileLines().stream().collect(Collectors.joining(lineSeperator));
+	/**
+	 * Checks a node the rule subscribed to. Does nothing unless overridden.
+	 *
+	 * @param pTree
+	 *            the node to check.
+	 */
+	protected void checkNode(Tree pTree) {
+		// overridden by the rules
+	}
+
+	private boolean isInChangedRegion(Tree pTree) {
+		return incrementalFileAnalysis == null || incrementalFileAnalysis.isInChangedRegion(pTree);
+	}
+
+	private boolean isInChangedRegion(SyntaxToken pSyntaxToken) {
+		return incrementalFileAnalysis == null || incrementalFileAnalysis.isInChangedRegion(pSyntaxToken);
+	}
+
+	/**
+	 * Counts a token to be inspected and stops analyzing the file if that
+	 * exceeds the budget, so that a single node with many tokens cannot
+	 * overrun it.
+	 *
+	 * @return <code>true</code> if the token is to be inspected.
+	 */
+	private boolean inspectToken(SyntaxToken pSyntaxToken) {
+		if (skippingFile || !isInChangedRegion(pSyntaxToken)) {
+			return false;
+		}
+		if (instrumentation.countToken()) {
+			stopAnalyzingFile();
+		}
+		return !skippingFile;
+	}
+
+	private void stopAnalyzingFile() {
+		skippingFile = true;
+		// the issues of the file are incomplete and must neither be cached nor kept
+		resultCache = null;
+		if (incrementalFileAnalysis != null) {
+			incrementalFileAnalysis.abort();
+			incrementalFileAnalysis = null;
+		}
+
+		final String budget = instrumentation.getExceededBudget();
+		LOG.warn("{} stopped analyzing {} after exceeding its budget of {}", getRuleKey(), engine.getFilePath(),
+				budget);
+
+		if (raiseIssueOnBudgetExceeded) {
+			addIssueOnFile(String.format("File is too expensive to analyze, %s stopped after %s.", getRuleKey(),
+					budget));
+		}
+	}
+
+	/**
+	 * Raises an issue on a tree for a checked token. All issues of the rule
+	 * are raised here, so they can be cached with the position of the token.
+	 * During an incremental analysis, issues on tokens outside of the changed
+	 * region are dropped, as they have been carried over already.
+	 *
+	 * @param pReportTree
+	 *            the tree to report the issue on: the token or one of its
+	 *            ancestors.
+	 * @param pSyntaxToken
+	 *            the checked token.
+	 * @param pMessage
+	 *            the message of the issue.
+	 */
+	protected void raiseIssue(Tree pReportTree, SyntaxToken pSyntaxToken, String pMessage) {
+		if (isInChangedRegion(pSyntaxToken)) {
+			recordAndReportIssue(pReportTree, pSyntaxToken.range().start().line(),
+					pSyntaxToken.range().start().column(), pMessage);
 		}
 	}
 
+	/**
+	 * Records an issue for the cache and the next incremental analysis and
+	 * reports it, or adds it to its group if the issues are aggregated.
+	 *
+	 * @param pReportTree
+	 *            the tree to report the issue on.
+	 * @param pLine
+	 *            the line of the checked token.
+	 * @param pColumn
+	 *            the column of the checked token.
+	 * @param pMessage
+	 *            the message of the issue.
+	 */
+	void recordAndReportIssue(Tree pReportTree, int pLine, int pColumn, String pMessage) {
+		if (resultCache != null || incrementalFileAnalysis != null) {
+			raisedCachedIssues.add(new CachedIssue(pLine, pColumn, pReportTree.kind(), pMessage));
+		}
+		getAggregatedIssues().add(pReportTree, pLine, pColumn, pMessage);
+	}
+
+	/**
+	 * Reports an issue on a tree, telling the {@link CheckedTokenListener}
+	 * the checked token first.
+	 *
+	 * @param pReportTree
+	 *            the tree to report the issue on.
+	 * @param pLine
+	 *            the line of the checked token.
+	 * @param pColumn
+	 *            the column of the checked token.
+	 * @param pMessage
+	 *            the message of the issue.
+	 * @param pSecondaryLocations
+	 *            the secondary locations, empty if there are none.
+	 * @param pCost
+	 *            the effort to fix the issue, <code>null</code> if not given.
+	 */
+	void reportIssue(Tree pReportTree, int pLine, int pColumn, String pMessage,
+			List<JavaFileScannerContext.Location> pSecondaryLocations, Integer pCost) {
+		if (checkedTokenListener != null) {
+			checkedTokenListener.beforeIssue(engine.getTokenStream().findToken(pLine, pColumn));
+		}
+
+		if (pSecondaryLocations.isEmpty()) {
+			reportIssue(pReportTree, pMessage);
+
+		} else {
+			reportIssue(pReportTree, pMessage, pSecondaryLocations, pCost);
+		}
+	}
+
+	@Override
+	public void reportIssue(Tree pTree, String pMessage) {
+		instrumentation.countIssue();
+		super.reportIssue(pTree, pMessage);
+	}
+
+	@Override
+	public void reportIssue(Tree pTree, String pMessage, List<JavaFileScannerContext.Location> pFlow,
+			Integer pCost) {
+		instrumentation.countIssue();
+		super.reportIssue(pTree, pMessage, pFlow, pCost);
+	}
+
 	/**
 	 * Checks if a preceding whitespace exists before a token.
 	 *
@@ -59,22 +312,99 @@ public abstract class NoWhitespaceCheck extends IssuableSubscriptionVisitor {
 	protected boolean hasWhitespaceBefore(SyntaxToken pSyntaxToken) {
 		boolean result = false;
 
-		final boolean lineBreak = isRegExMatchingLeftSidedCharsOfToken(pSyntaxToken, REGEX_PRECEDING_LINE_BREAK);
-		if (!lineBreak) {
-			final boolean whitespace = isRegExMatchingLeftSidedCharsOfToken(pSyntaxToken, REGEX_PRECEDING_WHITESPACE);
-			result = whitespace;
+		if (inspectToken(pSyntaxToken)) {
+			final SlowTokenEvent slowTokenEvent = instrumentation.beginSlowTokenEvent();
+			final Neighbor neighbor = scanLeftNeighbor(pSyntaxToken);
+			instrumentation.commitSlowTokenEvent(slowTokenEvent, pSyntaxToken, "before");
+			result = isViolating(neighbor);
+		}
 
-		} else {
+		return result;
+	}
+
+	/**
+	 * Checks if a following whitespace exists after a token.
+	 *
+	 * @param pSyntaxToken
+	 *            the token to check if it has a following whitespace.
+	 * @return <code>true</code>, if a following whitespace exists after the
+	 *         given token.
+	 */
+	protected boolean hasWhitespaceAfter(SyntaxToken pSyntaxToken) {
+		boolean result = false;
+
+		if (inspectToken(pSyntaxToken)) {
+			final SlowTokenEvent slowTokenEvent = instrumentation.beginSlowTokenEvent();
+			final Neighbor neighbor = scanRightNeighbor(pSyntaxToken);
+			instrumentation.commitSlowTokenEvent(slowTokenEvent, pSyntaxToken, "after");
+			result = isViolating(neighbor);
+		}
+
+		return result;
+	}
+
+	private boolean isViolating(Neighbor pNeighbor) {
+		boolean result = false;
+
+		if (pNeighbor == Neighbor.LINE_BREAK) {
 			result = !allowLineBreaks;
+
+		} else {
+			result = pNeighbor == Neighbor.WHITESPACE;
 		}
 
 		return result;
 	}
 
+	/**
+	 * Scans the characters on the left side of a token. The whitespace
+	 * preceding the token is skipped backwards until the first non-whitespace
+	 * character; if a line terminator is passed on the way, the token is
+	 * preceded by a line break.
+	 *
+	 * @param pSyntaxToken
+	 *            the token whose left sided characters are to scan.
+	 * @return the kind of the left neighbor.
+	 */
+	protected Neighbor scanLeftNeighbor(SyntaxToken pSyntaxToken) {
+		return useTokenRanges ? engine.getTokenStream().getLeftNeighbor(pSyntaxToken)
+				: engine.getLeftNeighbor(pSyntaxToken);
+	}
+
+	/**
+	 * Scans the character on the right side of a token. Only the character
+	 * directly following the token is inspected: a token is followed by a line
+	 * break only if the line terminator is its immediate neighbor.
+	 *
+	 * @param pSyntaxToken
+	 *            the token whose right sided character is to scan.
+	 * @return the kind of the right neighbor.
+	 */
+	protected Neighbor scanRightNeighbor(SyntaxToken pSyntaxToken) {
+		return useTokenRanges ? engine.getTokenStream().getRightNeighbor(pSyntaxToken)
+				: engine.getRightNeighbor(pSyntaxToken);
+	}
+
+	/**
+	 * Checks if a token is preceded by an annotation name, e.g. the bracket in
+	 * <code>String @NonNull []</code>.
+	 *
+	 * @param pSyntaxToken
+	 *            the token to check.
+	 * @return <code>true</code> if the token is preceded by an annotation name.
+	 */
+	protected boolean isPrecededByAnnotation(SyntaxToken pSyntaxToken) {
+		return useTokenRanges ? engine.getTokenStream().isPrecededByAnnotation(pSyntaxToken)
+				: isRegExMatchingLeftSidedCharsOfToken(pSyntaxToken, REGEX_PRECEDING_ANNOTATION, 0);
+	}
+
 	/**
 	 * Checks if a given RegEx matches the left sided char set of a given token.
-	 * The RegEx will be applied to a String that starts at the beginning of the
-	 * code until the left neighbor of the given token.
+	 * The RegEx will be applied to the region of the code that starts at the
+	 * beginning of the code until the left neighbor of the given token. A
+	 * RegEx that only needs to look back a few lines should pass its window to
+	 * {@link #isRegExMatchingLeftSidedCharsOfToken(SyntaxToken, String, int)},
+	 * as the matching time grows with the length of the region.
 	 *
 	 * @param pSyntaxToken
 	 *            the token whose left sided characters are to check.
@@ -83,24 +413,42 @@ public abstract class NoWhitespaceCheck extends IssuableSubscriptionVisitor {
 	 * @return <code>true</code> if the RegEx matches.
 	 */
 	protected boolean isRegExMatchingLeftSidedCharsOfToken(SyntaxToken pSyntaxToken, String pRegEx) {
-		final int tokenColumnIndex = pSyntaxToken.range().start().column() - 1;
-		final int tokenLineIndex = pSyntaxToken.range().start().line() - 1;
+		return isRegExMatchingRegion(PatternCache.getLeftSided(pRegEx), 0,
+				engine.getSourceModel().getStartIndex(pSyntaxToken));
+	}
 
-		final int charIndex = findCharIndex(codeText, tokenLineIndex, tokenColumnIndex);
-		final int charIndexLeftNeighbor = charIndex - 1;
-		final String subString = codeText.substring(0, charIndexLeftNeighbor + 1);
+	/**
+	 * Checks if a given RegEx matches the left sided char set of a given token
+	 * within a bounded look-behind window. The window starts a given number of
+	 * lines before the line of the last non-whitespace character preceding the
+	 * token, so a RegEx that matches a single-line construct followed by
+	 * whitespace only needs a window of <code>0</code> lines.
+	 *
+	 * @param pSyntaxToken
+	 *            the token whose left sided characters are to check.
+	 * @param pRegEx
+	 *            the RegEx to apply.
+	 * @param pLookBehindLines
+	 *            the number of additional lines the window reaches back.
+	 * @return <code>true</code> if the RegEx matches.
+	 */
+	protected boolean isRegExMatchingLeftSidedCharsOfToken(SyntaxToken pSyntaxToken, String pRegEx,
+			int pLookBehindLines) {
+		final SourceModel sourceModel = engine.getSourceModel();
+		final int charIndex = sourceModel.getStartIndex(pSyntaxToken);
 
-		final String regex = pRegEx + "\\z";
-		final Pattern pattern = Pattern.compile(regex, Pattern.DOTALL);
-		final Matcher matcher = pattern.matcher(subString);
+		final int lastNonWhitespaceIndex = sourceModel.skipWhitespaceBackward(charIndex);
+		final int lastNonWhitespaceLine = sourceModel.findLineIndex(Math.max(0, lastNonWhitespaceIndex));
+		final int windowLine = Math.max(0, lastNonWhitespaceLine - pLookBehindLines);
 
-		return matcher.find();
+		return isRegExMatchingRegion(PatternCache.getLeftSided(pRegEx), sourceModel.getLineStartIndex(windowLine),
+				charIndex);
 	}
 
 	/**
 	 * Checks if a given RegEx matches the right sided char set of a given
-	 * token. The RegEx will be applied to a String that starts at the beginning
-	 * of the token until the end of the code.
+	 * token. The RegEx will be applied to the region of the code that starts
+	 * at the end of the token until the end of the code.
 	 *
 	 * @param pSyntaxToken
 	 *            the token whose right sided characters are to check.
@@ -109,39 +457,21 @@ public abstract class NoWhitespaceCheck extends IssuableSubscriptionVisitor {
 	 * @return <code>true</code> if the RegEx matches.
 	 */
 	protected boolean isRegExMatchingRightSidedCharsOfToken(SyntaxToken pSyntaxToken, String pRegEx) {
-		final int tokenColumnIndex = pSyntaxToken.range().end().column() - 1;
-		final int tokenLineIndex = pSyntaxToken.range().end().line() - 1;
-
-		final int charIndex = findCharIndex(codeText, tokenLineIndex, tokenColumnIndex);
-		final String subString = codeText.substring(charIndex, codeText.length());
-
-		final String regex = "\\A" + pRegEx;
-		final Pattern pattern = Pattern.compile(regex, Pattern.DOTALL);
-		final Matcher matcher = pattern.matcher(subString);
-
-		return matcher.find();
+		final SourceModel sourceModel = engine.getSourceModel();
+		return isRegExMatchingRegion(PatternCache.getRightSided(pRegEx), sourceModel.getEndIndex(pSyntaxToken),
+				sourceModel.getCodeText().length());
 	}
 
 	/**
-	 * Finds the index (0-based) of a given token in a code text.
-	 * 
-	 * @param pCodeText
-	 *            the code text to find the token in.
-	 * @param pLine
-	 *            the line of the token (0-based).
-	 * @pColumn the column of the token (0-based).
-	 * @return the index of a character in a text.
+	 * Applies a pattern to a region of the code text without copying it. The
+	 * region bounds are anchoring, so <code>\A</code> and <code>\z</code>
+	 * match at the region's start and end.
 	 */
-	private int findCharIndex(String pCodeText, int pLine, int pColumn) {
-		final String[] lines = pCodeText.split(lineSeperator);
+	private boolean isRegExMatchingRegion(Pattern pPattern, int pStart, int pEnd) {
+		final Matcher matcher = pPattern.matcher(engine.getSourceModel().getCodeText());
+		matcher.region(pStart, pEnd);
 
-		int codePointIndex = 0;
-		for (int i = 0; i < pLine; i++) {
-			codePointIndex += lines[i].length() + lineSeperator.length();
-		}
-		codePointIndex += pColumn;
-
-		return codePointIndex;
+		return matcher.find();
 	}
 
 	/**
@@ -159,7 +489,211 @@ public abstract class NoWhitespaceCheck extends IssuableSubscriptionVisitor {
 		return allowLineBreaks;
 	}
 
+	/**
+	 * Setter to control whether whitespace is derived from the ranges of the
+	 * tokens and comments instead of the source text. The results only differ
+	 * in the cases listed at {@link TokenStream}.
+	 *
+	 * @param pUseTokenRanges
+	 *            whether the token ranges are used.
+	 */
+	public void setUseTokenRanges(boolean pUseTokenRanges) {
+		useTokenRanges = pUseTokenRanges;
+	}
+
+	protected boolean getUseTokenRanges() {
+		return useTokenRanges;
+	}
+
+	/**
+	 * Setter for the milliseconds the rule may spend on a file.
+	 *
+	 * @param pMaxFileMillis
+	 *            the milliseconds, <code>0</code> for no limit.
+	 */
+	public void setMaxFileMillis(int pMaxFileMillis) {
+		maxFileMillis = pMaxFileMillis;
+	}
+
+	/**
+	 * Setter for the number of tokens the rule may inspect in a file.
+	 *
+	 * @param pMaxCandidateTokens
+	 *            the number of tokens, <code>0</code> for no limit.
+	 */
+	public void setMaxCandidateTokens(int pMaxCandidateTokens) {
+		maxCandidateTokens = pMaxCandidateTokens;
+	}
+
+	/**
+	 * Setter to control whether an issue is raised on a file the rule stopped
+	 * analyzing.
+	 *
+	 * @param pRaiseIssueOnBudgetExceeded
+	 *            whether the issue is raised.
+	 */
+	public void setRaiseIssueOnBudgetExceeded(boolean pRaiseIssueOnBudgetExceeded) {
+		raiseIssueOnBudgetExceeded = pRaiseIssueOnBudgetExceeded;
+	}
+
+	/**
+	 * Setter for the number of lines above which a file is skipped.
+	 *
+	 * @param pMaxFileLines
+	 *            the number of lines, <code>0</code> for no limit.
+	 */
+	public void setMaxFileLines(int pMaxFileLines) {
+		maxFileLines = pMaxFileLines;
+		fileFilter = null;
+	}
+
+	/**
+	 * Setter to control whether generated files are skipped.
+	 *
+	 * @param pSkipGeneratedCode
+	 *            whether generated files are skipped.
+	 */
+	public void setSkipGeneratedCode(boolean pSkipGeneratedCode) {
+		skipGeneratedCode = pSkipGeneratedCode;
+		fileFilter = null;
+	}
+
+	/**
+	 * Setter for the markers of the header comment of a generated file.
+	 *
+	 * @param pGeneratedCodeMarkers
+	 *            the comma separated markers.
+	 */
+	public void setGeneratedCodeMarkers(String pGeneratedCodeMarkers) {
+		generatedCodeMarkers = pGeneratedCodeMarkers;
+		fileFilter = null;
+	}
+
+	/**
+	 * Setter for the listener that is told the checked token of each issue
+	 * right before the issue is reported, e.g. by a runner that locates the
+	 * issues on the token rather than on the tree they are reported on.
+	 *
+	 * @param pCheckedTokenListener
+	 *            the listener, <code>null</code> for none.
+	 */
+	public void setCheckedTokenListener(CheckedTokenListener pCheckedTokenListener) {
+		checkedTokenListener = pCheckedTokenListener;
+	}
+
+	/**
+	 * Setter for the metrics of the analysis the rule counts into, handed to
+	 * the rule by the registrar of the plugin.
+	 *
+	 * @param pAnalysisMetrics
+	 *            the metrics, <code>null</code> for none.
+	 */
+	public void setAnalysisMetrics(AnalysisMetrics pAnalysisMetrics) {
+		analysisMetrics = pAnalysisMetrics;
+	}
+
+	/**
+	 * Setter for the results of the recently analyzed files the incremental
+	 * analysis compares with, handed to the rule by the registrar of the
+	 * plugin.
+	 *
+	 * @param pIncrementalResults
+	 *            the results, <code>null</code> for none.
+	 */
+	public void setIncrementalResults(IncrementalResults pIncrementalResults) {
+		incrementalResults = pIncrementalResults;
+	}
+
+	/**
+	 * Setter to control whether only the lines changed since the previous
+	 * analysis of a file are evaluated again.
+	 *
+	 * @param pIncrementalAnalysis
+	 *            whether the analysis is incremental.
+	 */
+	public void setIncrementalAnalysis(boolean pIncrementalAnalysis) {
+		incrementalAnalysis = pIncrementalAnalysis;
+	}
+
+	/**
+	 * Setter for the grouping of the violations into issues.
+	 *
+	 * @param pAggregateIssues
+	 *            <code>none</code>, <code>line</code> or
+	 *            <code>statement</code>.
+	 */
+	public void setAggregateIssues(String pAggregateIssues) {
+		aggregateIssues = pAggregateIssues;
+		aggregatedIssues = null;
+	}
+
+	private FileFilter getFileFilter() {
+		if (fileFilter == null) {
+			fileFilter = new FileFilter(maxFileLines, skipGeneratedCode, generatedCodeMarkers);
+		}
+		return fileFilter;
+	}
+
+	private AggregatedIssues getAggregatedIssues() {
+		if (aggregatedIssues == null) {
+			aggregatedIssues = AggregatedIssues.of(this, getRuleKey(), aggregateIssues);
+		}
+		return aggregatedIssues;
+	}
+
 	protected String getCodeText() {
-		return codeText;
+		return engine == null ? null : engine.getSourceModel().getCodeText();
+	}
+
+	/**
+	 * @return the shared source model of the file being analyzed.
+	 */
+	protected SourceModel getSourceModel() {
+		return engine.getSourceModel();
+	}
+
+	/**
+	 * Gets the key of the rule from the {@link Rule} annotation of the class
+	 * or of its nearest annotated superclass.
+	 */
+	private String getRuleKey() {
+		if (ruleKey == null) {
+			Class<?> ruleClass = getClass();
+			while (ruleClass.getAnnotation(Rule.class) == null && ruleClass.getSuperclass() != null) {
+				ruleClass = ruleClass.getSuperclass();
+			}
+
+			final Rule rule = ruleClass.getAnnotation(Rule.class);
+			ruleKey = rule == null ? getClass().getSimpleName() : rule.key();
+		}
+		return ruleKey;
+	}
+
+	/**
+	 * Listener of the checked tokens of the issues a rule reports.
+	 */
+	@FunctionalInterface
+	public interface CheckedTokenListener {
+
+		/**
+		 * Called right before an issue is reported on a tree.
+		 *
+		 * @param pCheckedToken
+		 *            the token whose whitespace violates the rule,
+		 *            <code>null</code> if it cannot be found.
+		 */
+		void beforeIssue(SyntaxToken pCheckedToken);
+	}
+
+	/**
+	 * Kind of the characters neighboring a token.
+	 */
+	protected enum Neighbor {
+		/** The token is directly adjacent to a non-whitespace character. */
+		NONE,
+		/** The token is separated from its neighbor by whitespace on the same line. */
+		WHITESPACE,
+		/** The token is separated from its neighbor by a line break. */
+		LINE_BREAK
 	}
 }
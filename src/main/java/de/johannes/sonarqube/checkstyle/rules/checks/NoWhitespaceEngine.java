@@ -0,0 +1,275 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck.Neighbor;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+
+/**
+ * Whitespace engine shared by all {@link NoWhitespaceCheck} rules analyzing a
+ * file. sonar-java walks the tree of a file once and dispatches each node to
+ * every subscribed rule; the engine makes sure that the whitespace around a
+ * token is evaluated only once as well, no matter how many rules inspect the
+ * token. Both neighbors of a token are evaluated together and kept in a small
+ * memo, as the rules visiting the same node ask for the same tokens right
+ * after each other. Each rule still reports its issues under its own rule key
+ * and can be activated independently.
+ * <p>
+ * The whitespace is derived either from the source text or, without loading
+ * the text at all, from the ranges of the tokens and comments of the tree (see
+ * {@link TokenStream}). Both are created on demand.
+ * <p>
+ * An engine is created once per {@link JavaFileScannerContext} and released as
+ * soon as the last rule leaves the file. While the metrics are on, the time
+ * all rules spent on the file is then offered to the slowest files of the
+ * metrics the rules counted into. The registry holds neither the contexts nor the engines strongly:
+ * if a file is never left, e.g. because the analysis of the file failed, its
+ * engine and source model are collected once no rule refers to them anymore.
+ */
+public final class NoWhitespaceEngine {
+
+	/**
+	 * Engines by the context of their file. Contexts do not override
+	 * {@link Object#equals(Object)}, so they are compared by identity.
+	 */
+	private static final Map<JavaFileScannerContext, WeakReference<NoWhitespaceEngine>> ENGINES = new WeakHashMap<>();
+
+	/** Number of tokens whose evaluation is memorized. */
+	private static final int MEMO_SIZE = 8;
+
+	private final JavaFileScannerContext context;
+	private SourceModel sourceModel;
+	private TokenStream tokenStream;
+	/** Hash of the source text, <code>null</code> until requested. */
+	private String textHash;
+	/** Hash of the tokens and comments, <code>null</code> until requested. */
+	private String tokenRangesHash;
+	private int references;
+	/** Metrics the rules counted into, <code>null</code> if none. */
+	private AnalysisMetrics analysisMetrics;
+	private long spentNanos;
+
+	private final SyntaxToken[] memoTokens = new SyntaxToken[MEMO_SIZE];
+	private final Neighbor[] memoLeftNeighbors = new Neighbor[MEMO_SIZE];
+	private final Neighbor[] memoRightNeighbors = new Neighbor[MEMO_SIZE];
+	private int memoNext;
+
+	private NoWhitespaceEngine(JavaFileScannerContext pContext) {
+		context = pContext;
+	}
+
+	/**
+	 * Gets the engine of a file, creating it on the first request for the
+	 * given context. Each call must be paired with a call of
+	 * {@link #release(JavaFileScannerContext)}.
+	 *
+	 * @param pContext
+	 *            the context of the file being analyzed.
+	 * @return the shared engine.
+	 */
+	public static NoWhitespaceEngine acquire(JavaFileScannerContext pContext) {
+		synchronized (ENGINES) {
+			NoWhitespaceEngine engine = get(pContext);
+			if (engine == null) {
+				engine = new NoWhitespaceEngine(pContext);
+				ENGINES.put(pContext, new WeakReference<>(engine));
+			}
+			engine.references++;
+			return engine;
+		}
+	}
+
+	/**
+	 * Releases the engine of a file. The engine is discarded when the last
+	 * rule analyzing the file has released it.
+	 *
+	 * @param pContext
+	 *            the context of the file being analyzed.
+	 */
+	public static void release(JavaFileScannerContext pContext) {
+		synchronized (ENGINES) {
+			final NoWhitespaceEngine engine = get(pContext);
+			if (engine != null && --engine.references == 0) {
+				ENGINES.remove(pContext);
+				engine.offerToSlowestFiles();
+			}
+		}
+	}
+
+	/**
+	 * Checks if a rule holds the engine of a file, i.e. it acquired the
+	 * engine and has not released it yet.
+	 *
+	 * @param pContext
+	 *            the context of the file.
+	 * @return <code>true</code> if the engine is held.
+	 */
+	public static boolean isAcquired(JavaFileScannerContext pContext) {
+		synchronized (ENGINES) {
+			return get(pContext) != null;
+		}
+	}
+
+	private static NoWhitespaceEngine get(JavaFileScannerContext pContext) {
+		final WeakReference<NoWhitespaceEngine> reference = ENGINES.get(pContext);
+		return reference == null ? null : reference.get();
+	}
+
+	private void offerToSlowestFiles() {
+		if (analysisMetrics != null && spentNanos > 0) {
+			analysisMetrics.getSlowestFiles().offer(getFilePath(), getLineCount(), spentNanos);
+		}
+	}
+
+	/**
+	 * Adds the time a rule spent on the file.
+	 *
+	 * @param pAnalysisMetrics
+	 *            the metrics the rule counts into.
+	 * @param pNanos
+	 *            the nanoseconds spent.
+	 */
+	public void addSpentNanos(AnalysisMetrics pAnalysisMetrics, long pNanos) {
+		analysisMetrics = pAnalysisMetrics;
+		spentNanos += pNanos;
+	}
+
+	/**
+	 * @return the path of the file, <code>null</code> if the context has no
+	 *         input file.
+	 */
+	public String getFilePath() {
+		final InputFile inputFile = context.getInputFile();
+		return inputFile == null ? null : inputFile.toString();
+	}
+
+	/**
+	 * Gets the number of lines of the file from its end-of-file token, so the
+	 * source text does not need to be loaded.
+	 *
+	 * @return the number of lines.
+	 */
+	public int getLineCount() {
+		final SyntaxToken eofToken = context.getTree().eofToken();
+		return eofToken == null ? 0 : eofToken.range().start().line();
+	}
+
+	/**
+	 * Gets the source model of the file. The code text is loaded on the first
+	 * request.
+	 *
+	 * @return the source model.
+	 */
+	public SourceModel getSourceModel() {
+		if (sourceModel == null) {
+			sourceModel = new SourceModel(context.getFileContent());
+		}
+		return sourceModel;
+	}
+
+	/**
+	 * @return the length of the source text, <code>0</code> if the text has
+	 *         not been loaded.
+	 */
+	public int getTextLength() {
+		return sourceModel == null ? 0 : sourceModel.getCodeText().length();
+	}
+
+	/**
+	 * Gets the hash of the file content for the analysis cache. The hash is
+	 * computed once per file and shared by all rules. A rule that derives the
+	 * whitespace from the token ranges gets a hash of the tokens and comments
+	 * with their ranges, which covers everything its results depend on, so
+	 * the source text is not loaded for the hash.
+	 *
+	 * @param pUseTokenRanges
+	 *            <code>true</code> for the hash of the tokens and comments,
+	 *            <code>false</code> for the hash of the source text.
+	 * @return the hash.
+	 */
+	public String getContentHash(boolean pUseTokenRanges) {
+		final String result;
+
+		if (pUseTokenRanges) {
+			if (tokenRangesHash == null) {
+				final MessageDigest digest = ResultCache.newDigest();
+				getTokenStream().digest(digest);
+				tokenRangesHash = ResultCache.toHex(digest.digest());
+			}
+			result = tokenRangesHash;
+
+		} else {
+			if (textHash == null) {
+				textHash = ResultCache.hash(getSourceModel().getCodeText());
+			}
+			result = textHash;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the tokens of the file. The tokens are collected on the first
+	 * request.
+	 *
+	 * @return the token stream.
+	 */
+	public TokenStream getTokenStream() {
+		if (tokenStream == null) {
+			tokenStream = TokenStream.of(context.getTree());
+		}
+		return tokenStream;
+	}
+
+	/**
+	 * Gets the kind of the left neighbor of a token from the source text.
+	 *
+	 * @param pSyntaxToken
+	 *            the token.
+	 * @return the kind of the left neighbor.
+	 */
+	public Neighbor getLeftNeighbor(SyntaxToken pSyntaxToken) {
+		return memoLeftNeighbors[evaluate(pSyntaxToken)];
+	}
+
+	/**
+	 * Gets the kind of the right neighbor of a token from the source text.
+	 *
+	 * @param pSyntaxToken
+	 *            the token.
+	 * @return the kind of the right neighbor.
+	 */
+	public Neighbor getRightNeighbor(SyntaxToken pSyntaxToken) {
+		return memoRightNeighbors[evaluate(pSyntaxToken)];
+	}
+
+	/**
+	 * Evaluates both neighbors of a token, unless they are memorized already.
+	 *
+	 * @return the memo slot holding the neighbors of the token.
+	 */
+	private int evaluate(SyntaxToken pSyntaxToken) {
+		for (int i = 0; i < MEMO_SIZE; i++) {
+			if (memoTokens[i] == pSyntaxToken) {
+				return i;
+			}
+		}
+
+		final int slot = memoNext;
+		memoNext = (memoNext + 1) % MEMO_SIZE;
+
+		final SourceModel model = getSourceModel();
+		memoTokens[slot] = pSyntaxToken;
+		memoLeftNeighbors[slot] = model.scanLeftNeighbor(model.getStartIndex(pSyntaxToken));
+		memoRightNeighbors[slot] = model.scanRightNeighbor(model.getEndIndex(pSyntaxToken));
+
+		return slot;
+	}
+}
@@ -0,0 +1,94 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of the compiled patterns used by
+ * {@link NoWhitespaceCheck#isRegExMatchingLeftSidedCharsOfToken(org.sonar.plugins.java.api.tree.SyntaxToken, String)}
+ * and
+ * {@link NoWhitespaceCheck#isRegExMatchingRightSidedCharsOfToken(org.sonar.plugins.java.api.tree.SyntaxToken, String)}.
+ * Patterns are immutable, so the cache is shared by all check instances. Each
+ * pattern is compiled once and counts its lookups, so the use of a RegEx can
+ * be told apart from the use of all others.
+ */
+public final class PatternCache {
+
+	private static final Map<String, CachedPattern> LEFT_SIDED_PATTERNS = new ConcurrentHashMap<>();
+	private static final Map<String, CachedPattern> RIGHT_SIDED_PATTERNS = new ConcurrentHashMap<>();
+
+	private PatternCache() {
+	}
+
+	/**
+	 * Gets the compiled pattern of a RegEx anchored at the end of the input,
+	 * i.e. at the left neighbor of a token.
+	 *
+	 * @param pRegEx
+	 *            the RegEx to compile.
+	 * @return the compiled pattern.
+	 */
+	public static Pattern getLeftSided(String pRegEx) {
+		return get(LEFT_SIDED_PATTERNS, pRegEx + "\\z");
+	}
+
+	/**
+	 * Gets the compiled pattern of a RegEx anchored at the beginning of the
+	 * input, i.e. at the right neighbor of a token.
+	 *
+	 * @param pRegEx
+	 *            the RegEx to compile.
+	 * @return the compiled pattern.
+	 */
+	public static Pattern getRightSided(String pRegEx) {
+		return get(RIGHT_SIDED_PATTERNS, "\\A" + pRegEx);
+	}
+
+	/**
+	 * @param pRegEx
+	 *            the RegEx.
+	 * @return the number of lookups of the left sided pattern of the RegEx,
+	 *         <code>0</code> if it was never looked up.
+	 */
+	public static long getLeftSidedLookupCount(String pRegEx) {
+		return getLookupCount(LEFT_SIDED_PATTERNS, pRegEx + "\\z");
+	}
+
+	/**
+	 * @param pRegEx
+	 *            the RegEx.
+	 * @return the number of lookups of the right sided pattern of the RegEx,
+	 *         <code>0</code> if it was never looked up.
+	 */
+	public static long getRightSidedLookupCount(String pRegEx) {
+		return getLookupCount(RIGHT_SIDED_PATTERNS, "\\A" + pRegEx);
+	}
+
+	private static Pattern get(Map<String, CachedPattern> pPatterns, String pAnchoredRegEx) {
+		CachedPattern cachedPattern = pPatterns.get(pAnchoredRegEx);
+		if (cachedPattern == null) {
+			cachedPattern = pPatterns.computeIfAbsent(pAnchoredRegEx, CachedPattern::new);
+		}
+		cachedPattern.lookups.increment();
+		return cachedPattern.pattern;
+	}
+
+	private static long getLookupCount(Map<String, CachedPattern> pPatterns, String pAnchoredRegEx) {
+		final CachedPattern cachedPattern = pPatterns.get(pAnchoredRegEx);
+		return cachedPattern == null ? 0 : cachedPattern.lookups.sum();
+	}
+
+	/**
+	 * A compiled pattern and the number of its lookups.
+	 */
+	private static final class CachedPattern {
+		private final Pattern pattern;
+		private final LongAdder lookups = new LongAdder();
+
+		CachedPattern(String pAnchoredRegEx) {
+			pattern = Pattern.compile(pAnchoredRegEx, Pattern.DOTALL);
+		}
+	}
+}
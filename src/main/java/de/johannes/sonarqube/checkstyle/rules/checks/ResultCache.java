@@ -0,0 +1,279 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.Tree.Kind;
+
+/**
+ * Entry of a rule for a file in sonar-java's analysis cache. An entry holds the
+ * issues the rule raised on the file together with the hash of the file
+ * content and the fingerprint of the rule properties they were raised with,
+ * so the issues of an unchanged file analyzed with unchanged properties can be
+ * replayed instead of analyzing the file again.
+ */
+final class ResultCache {
+
+	private static final Logger LOG = Loggers.get(ResultCache.class);
+
+	private static final String KEY_PREFIX = "johannes-checkstyle-rules:";
+	private static final int FORMAT_VERSION = 1;
+
+	private final JavaReadCache readCache;
+	private final JavaWriteCache writeCache;
+	private final String key;
+	private final String contentHash;
+	private final String fingerprint;
+
+	private ResultCache(CacheContext pCacheContext, String pKey, String pContentHash, String pFingerprint) {
+		readCache = pCacheContext.getReadCache();
+		writeCache = pCacheContext.getWriteCache();
+		key = pKey;
+		contentHash = pContentHash;
+		fingerprint = pFingerprint;
+	}
+
+	/**
+	 * Gets the cache entry of a rule for a file.
+	 *
+	 * @param pContext
+	 *            the context of the file being analyzed.
+	 * @param pRuleKey
+	 *            the key of the rule.
+	 * @param pRule
+	 *            the rule, whose rule properties are fingerprinted.
+	 * @param pContentHash
+	 *            supplies the hash of the file content, only called if the
+	 *            analysis cache is enabled.
+	 * @return the cache entry, <code>null</code> if the analysis cache is
+	 *         disabled.
+	 */
+	static ResultCache of(JavaFileScannerContext pContext, String pRuleKey, Object pRule,
+			Supplier<String> pContentHash) {
+		final CacheContext cacheContext = pContext.getCacheContext();
+		final InputFile inputFile = pContext.getInputFile();
+
+		ResultCache result = null;
+		if (cacheContext != null && cacheContext.isCacheEnabled() && inputFile != null) {
+			result = new ResultCache(cacheContext, KEY_PREFIX + pRuleKey + ":" + inputFile.key(),
+					pContentHash.get(), fingerprint(pRule));
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the issues of the previous analysis.
+	 *
+	 * @return the issues, <code>null</code> if there is no entry or the file
+	 *         or the rule properties have changed since.
+	 */
+	List<CachedIssue> read() {
+		List<CachedIssue> result = null;
+
+		final byte[] data = readCache.readBytes(key);
+		if (data != null) {
+			try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+				if (input.readInt() == FORMAT_VERSION && contentHash.equals(input.readUTF())
+						&& fingerprint.equals(input.readUTF())) {
+					result = readIssues(input);
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				LOG.debug("Ignoring unreadable cache entry {}: {}", key, e.getMessage());
+			}
+		}
+
+		return result;
+	}
+
+	private static List<CachedIssue> readIssues(DataInputStream pInput) throws IOException {
+		final int count = pInput.readInt();
+		final List<CachedIssue> issues = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			issues.add(new CachedIssue(pInput.readInt(), pInput.readInt(), Kind.valueOf(pInput.readUTF()),
+					pInput.readUTF()));
+		}
+		return Collections.unmodifiableList(issues);
+	}
+
+	/**
+	 * Replays the issues of the previous analysis, if the file and the rule
+	 * properties are unchanged, and carries the entry over to the next
+	 * analysis. The issues are reported on the same trees as before, which are
+	 * found from the position of the checked token. If any of them cannot be
+	 * found, nothing is replayed and the file has to be analyzed again.
+	 *
+	 * @param pAggregatedIssues
+	 *            the issues of the rule the replayed issues are reported to.
+	 * @param pTokenStream
+	 *            the tokens of the file.
+	 * @return <code>true</code> if the issues were replayed.
+	 */
+	boolean replay(AggregatedIssues pAggregatedIssues, TokenStream pTokenStream) {
+		final List<CachedIssue> cachedIssues = read();
+		final List<Tree> reportTrees = cachedIssues == null ? null : pTokenStream.findReportTrees(cachedIssues);
+
+		if (reportTrees != null) {
+			for (int i = 0; i < cachedIssues.size(); i++) {
+				final CachedIssue cachedIssue = cachedIssues.get(i);
+				pAggregatedIssues.add(reportTrees.get(i), cachedIssue.getLine(), cachedIssue.getColumn(),
+						cachedIssue.getMessage());
+			}
+			copyFromPrevious();
+		}
+		return reportTrees != null;
+	}
+
+	/**
+	 * Carries the entry of the previous analysis over to the next one.
+	 */
+	void copyFromPrevious() {
+		writeCache.copyFromPrevious(key);
+	}
+
+	/**
+	 * Writes the issues of this analysis for the next one.
+	 *
+	 * @param pIssues
+	 *            the issues.
+	 */
+	void write(List<CachedIssue> pIssues) {
+		final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+		try (DataOutputStream output = new DataOutputStream(data)) {
+			output.writeInt(FORMAT_VERSION);
+			output.writeUTF(contentHash);
+			output.writeUTF(fingerprint);
+			output.writeInt(pIssues.size());
+			for (final CachedIssue issue : pIssues) {
+				output.writeInt(issue.getLine());
+				output.writeInt(issue.getColumn());
+				output.writeUTF(issue.getReportKind().name());
+				output.writeUTF(issue.getMessage());
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to serialize cache entry " + key, e);
+		}
+
+		writeCache.write(key, data.toByteArray());
+	}
+
+	/**
+	 * Creates the fingerprint of the rule properties of a rule: the values of
+	 * all fields annotated with {@link RuleProperty}, ordered by key.
+	 *
+	 * @param pRule
+	 *            the rule.
+	 * @return the fingerprint.
+	 */
+	static String fingerprint(Object pRule) {
+		final Map<String, String> properties = new TreeMap<>();
+
+		for (Class<?> ruleClass = pRule.getClass(); ruleClass != null; ruleClass = ruleClass.getSuperclass()) {
+			for (final Field field : ruleClass.getDeclaredFields()) {
+				final RuleProperty ruleProperty = field.getAnnotation(RuleProperty.class);
+				if (ruleProperty != null) {
+					field.setAccessible(true);
+					try {
+						properties.put(ruleProperty.key(), String.valueOf(field.get(pRule)));
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException("Unable to read rule property " + ruleProperty.key(), e);
+					}
+				}
+			}
+		}
+
+		return hash(pRule.getClass().getName() + properties);
+	}
+
+	/**
+	 * Hashes a text.
+	 *
+	 * @param pText
+	 *            the text.
+	 * @return the SHA-256 hash of the text as hex digits.
+	 */
+	static String hash(String pText) {
+		return toHex(newDigest().digest(pText.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * @return a new SHA-256 digest.
+	 */
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * @param pDigest
+	 *            the bytes of a digest.
+	 * @return the bytes as hex digits.
+	 */
+	static String toHex(byte[] pDigest) {
+		final StringBuilder result = new StringBuilder(pDigest.length * 2);
+		for (final byte b : pDigest) {
+			result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * An issue raised on a file: the start of the token that was checked, the
+	 * kind of the tree the issue was reported on, which is the token itself or
+	 * one of its ancestors, and the message.
+	 */
+	static final class CachedIssue {
+		private final int line;
+		private final int column;
+		private final Kind reportKind;
+		private final String message;
+
+		CachedIssue(int pLine, int pColumn, Kind pReportKind, String pMessage) {
+			line = pLine;
+			column = pColumn;
+			reportKind = pReportKind;
+			message = pMessage;
+		}
+
+		int getLine() {
+			return line;
+		}
+
+		int getColumn() {
+			return column;
+		}
+
+		Kind getReportKind() {
+			return reportKind;
+		}
+
+		String getMessage() {
+			return message;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.util.Arrays;
+
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck.Neighbor;
+
+/**
+ * Source model of the file being analyzed: the code text, the offsets at which
+ * its lines start and the offsets of tokens within it. A model is created once
+ * per file by its {@link NoWhitespaceEngine} and shared by all checks analyzing
+ * the file.
+ * <p>
+ * The offsets of a token are resolved from its range once and then kept in an
+ * identity hash table, since every check and every RegEx hook asks for the
+ * offsets of the same tokens again. Like the engine, a model is used by the
+ * thread analyzing its file only.
+ */
+public final class SourceModel {
+
+	/** Capacity of the offset table, a power of two. */
+	private static final int INITIAL_OFFSET_CAPACITY = 256;
+
+	private final String codeText;
+	/** Offsets (0-based) at which the lines of {@link #codeText} start. */
+	private final int[] lineStartOffsets;
+
+	/** Tokens whose offsets are cached, an open addressing table by identity. */
+	private SyntaxToken[] offsetTokens = new SyntaxToken[INITIAL_OFFSET_CAPACITY];
+	/** Start and end index of the token in the same slot of {@link #offsetTokens}. */
+	private int[] tokenOffsets = new int[INITIAL_OFFSET_CAPACITY * 2];
+	private int offsetTokenCount;
+
+	SourceModel(String pCodeText) {
+		codeText = pCodeText;
+		lineStartOffsets = computeLineStartOffsets(pCodeText);
+	}
+
+	/**
+	 * Computes the offsets (0-based) at which the lines of a code text start.
+	 * The line terminators <code>\n</code>, <code>\r\n</code> and
+	 * <code>\r</code> are recognized.
+	 *
+	 * @param pCodeText
+	 *            the code text to index.
+	 * @return the start offset of each line, indexed by line (0-based).
+	 */
+	private static int[] computeLineStartOffsets(String pCodeText) {
+		int[] offsets = new int[Math.max(16, pCodeText.length() / 32)];
+		int lineCount = 1;
+
+		final int length = pCodeText.length();
+		for (int i = 0; i < length; i++) {
+			final char c = pCodeText.charAt(i);
+			if (c == '\n' || c == '\r') {
+				if (c == '\r' && i + 1 < length && pCodeText.charAt(i + 1) == '\n') {
+					i++;
+				}
+				if (lineCount == offsets.length) {
+					offsets = Arrays.copyOf(offsets, lineCount * 2);
+				}
+				offsets[lineCount++] = i + 1;
+			}
+		}
+
+		return Arrays.copyOf(offsets, lineCount);
+	}
+
+	public String getCodeText() {
+		return codeText;
+	}
+
+	public int getLineCount() {
+		return lineStartOffsets.length;
+	}
+
+	/**
+	 * Gets the index (0-based) of the first character of a token in the code
+	 * text.
+	 */
+	public int getStartIndex(SyntaxToken pSyntaxToken) {
+		// the table may grow, so the slot is found before the offsets are read
+		final int slot = findOffsetSlot(pSyntaxToken);
+		return tokenOffsets[slot * 2];
+	}
+
+	/**
+	 * Gets the index (0-based) of the character right after a token in the
+	 * code text.
+	 */
+	public int getEndIndex(SyntaxToken pSyntaxToken) {
+		final int slot = findOffsetSlot(pSyntaxToken);
+		return tokenOffsets[slot * 2 + 1];
+	}
+
+	/**
+	 * Finds the slot of a token in the offset table, resolving and adding its
+	 * offsets if the token is not cached yet.
+	 */
+	private int findOffsetSlot(SyntaxToken pSyntaxToken) {
+		int slot = findOffsetSlot(offsetTokens, pSyntaxToken);
+
+		if (offsetTokens[slot] == null) {
+			if ((offsetTokenCount + 1) * 2 > offsetTokens.length) {
+				growOffsetTable();
+				slot = findOffsetSlot(offsetTokens, pSyntaxToken);
+			}
+			offsetTokens[slot] = pSyntaxToken;
+			tokenOffsets[slot * 2] = findCharIndex(pSyntaxToken.range().start().line() - 1,
+					pSyntaxToken.range().start().column() - 1);
+			tokenOffsets[slot * 2 + 1] = findCharIndex(pSyntaxToken.range().end().line() - 1,
+					pSyntaxToken.range().end().column() - 1);
+			offsetTokenCount++;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Finds the slot holding a token or, if the token is missing, the empty
+	 * slot it belongs into. The table is never full.
+	 */
+	private static int findOffsetSlot(SyntaxToken[] pTokens, SyntaxToken pSyntaxToken) {
+		final int mask = pTokens.length - 1;
+		int slot = System.identityHashCode(pSyntaxToken) & mask;
+		while (pTokens[slot] != null && pTokens[slot] != pSyntaxToken) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void growOffsetTable() {
+		final SyntaxToken[] tokens = new SyntaxToken[offsetTokens.length * 2];
+		final int[] offsets = new int[tokens.length * 2];
+
+		for (int i = 0; i < offsetTokens.length; i++) {
+			if (offsetTokens[i] != null) {
+				final int slot = findOffsetSlot(tokens, offsetTokens[i]);
+				tokens[slot] = offsetTokens[i];
+				offsets[slot * 2] = tokenOffsets[i * 2];
+				offsets[slot * 2 + 1] = tokenOffsets[i * 2 + 1];
+			}
+		}
+
+		offsetTokens = tokens;
+		tokenOffsets = offsets;
+	}
+
+	/**
+	 * Finds the index (0-based) of a character in the code text by a lookup in
+	 * the line start offsets.
+	 * 
+	 * @param pLine
+	 *            the line of the character (0-based).
+	 * @param pColumn
+	 *            the column of the character (0-based).
+	 * @return the index of a character in the code text.
+	 */
+	public int findCharIndex(int pLine, int pColumn) {
+		return lineStartOffsets[pLine] + pColumn;
+	}
+
+	/**
+	 * Finds the line (0-based) of a character in the code text.
+	 *
+	 * @param pCharIndex
+	 *            the index (0-based) of the character.
+	 * @return the line of the character.
+	 */
+	public int findLineIndex(int pCharIndex) {
+		final int index = Arrays.binarySearch(lineStartOffsets, pCharIndex);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	/**
+	 * Gets the index (0-based) at which a line starts in the code text.
+	 *
+	 * @param pLine
+	 *            the line (0-based).
+	 * @return the index of the first character of the line.
+	 */
+	public int getLineStartIndex(int pLine) {
+		return lineStartOffsets[pLine];
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of each line of the code text, including
+	 * its line terminator.
+	 *
+	 * @return the hash of each line, indexed by line (0-based).
+	 */
+	public long[] computeLineHashes() {
+		final long[] hashes = new long[lineStartOffsets.length];
+
+		for (int line = 0; line < lineStartOffsets.length; line++) {
+			final int end = line + 1 < lineStartOffsets.length ? lineStartOffsets[line + 1] : codeText.length();
+
+			long hash = 0xcbf29ce484222325L;
+			for (int i = lineStartOffsets[line]; i < end; i++) {
+				hash = (hash ^ codeText.charAt(i)) * 0x100000001b3L;
+			}
+			hashes[line] = hash;
+		}
+
+		return hashes;
+	}
+
+	/**
+	 * Skips the whitespace preceding a character index backwards.
+	 *
+	 * @param pCharIndex
+	 *            the index (0-based) to start from, exclusive.
+	 * @return the index of the last non-whitespace character before the given
+	 *         index, <code>-1</code> if there is none.
+	 */
+	public int skipWhitespaceBackward(int pCharIndex) {
+		int i = pCharIndex - 1;
+		while (i >= 0 && isWhitespace(codeText.charAt(i))) {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * Scans the characters left of a character index. The whitespace preceding
+	 * the index is skipped backwards until the first non-whitespace character;
+	 * if a line terminator is passed on the way, the neighbor is a line break.
+	 *
+	 * @param pCharIndex
+	 *            the index (0-based) of the first character of a token.
+	 * @return the kind of the left neighbor.
+	 */
+	public Neighbor scanLeftNeighbor(int pCharIndex) {
+		int i = pCharIndex - 1;
+		while (i >= 0 && isWhitespace(codeText.charAt(i))) {
+			if (isLineTerminator(codeText.charAt(i))) {
+				return Neighbor.LINE_BREAK;
+			}
+			i--;
+		}
+
+		Neighbor result = Neighbor.NONE;
+		if (i >= 0 && isLineTerminator(codeText.charAt(i))) {
+			result = Neighbor.LINE_BREAK;
+
+		} else if (i < pCharIndex - 1) {
+			result = Neighbor.WHITESPACE;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Scans the character at a character index, i.e. the right neighbor of a
+	 * token ending there. A token is followed by a line break only if the line
+	 * terminator is its immediate neighbor.
+	 *
+	 * @param pCharIndex
+	 *            the index (0-based) of the character right after a token.
+	 * @return the kind of the right neighbor.
+	 */
+	public Neighbor scanRightNeighbor(int pCharIndex) {
+		Neighbor result = Neighbor.NONE;
+		if (pCharIndex < codeText.length()) {
+			final char c = codeText.charAt(pCharIndex);
+			if (isLineTerminator(c)) {
+				result = Neighbor.LINE_BREAK;
+
+			} else if (isWhitespace(c)) {
+				result = Neighbor.WHITESPACE;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks if a character is whitespace, with the same character set as the
+	 * RegEx class <code>\s</code>.
+	 */
+	private static boolean isWhitespace(char pChar) {
+		return pChar == ' ' || pChar == '\t' || pChar == '\n' || pChar == '\u000B' || pChar == '\f' || pChar == '\r';
+	}
+
+	/**
+	 * Checks if a character is a line terminator, with the same character set
+	 * as the RegEx class <code>\R</code>.
+	 */
+	private static boolean isLineTerminator(char pChar) {
+		return pChar == '\n' || pChar == '\u000B' || pChar == '\f' || pChar == '\r' || pChar == '\u0085'
+				|| pChar == '\u2028' || pChar == '\u2029';
+	}
+}
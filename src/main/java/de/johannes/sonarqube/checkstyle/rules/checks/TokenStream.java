@@ -0,0 +1,341 @@
+package de.johannes.sonarqube.checkstyle.rules.checks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.sonar.plugins.java.api.SubscriptionVisitor;
+import org.sonar.plugins.java.api.location.Position;
+import org.sonar.plugins.java.api.location.Range;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.Tree.Kind;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck.Neighbor;
+import de.johannes.sonarqube.checkstyle.rules.checks.ResultCache.CachedIssue;
+
+/**
+ * The tokens of a file in source order. Derives the whitespace around a token
+ * from the ranges of its neighboring tokens and comments only, so no source
+ * text is needed.
+ * <p>
+ * Whitespace is the only thing that can separate two tokens or comments, so a
+ * token is separated from its neighbor by a line break if the neighbor ends
+ * (or starts) on another line, by whitespace if there is a gap between their
+ * columns and by nothing otherwise.
+ * <p>
+ * The result equals the text based evaluation of {@link SourceModel} except
+ * for the following cases, which are not visible in the ranges:
+ * <ul>
+ * <li>Trailing whitespace: a token followed by spaces and a line break is
+ * followed by a line break here, whereas the text based evaluation only sees
+ * the spaces.</li>
+ * <li>Form feeds: Java does not start a new line at a form feed, so a token
+ * separated from its neighbor by a form feed on the same line is separated by
+ * whitespace here, whereas the text based evaluation treats the form feed as a
+ * line break like the RegEx class <code>\R</code>.</li>
+ * <li>Unicode escapes: whitespace written as a Unicode escape, e.g.
+ * <code>&#92;u0020</code>, is whitespace here, whereas the text based evaluation
+ * sees the characters of the escape.</li>
+ * </ul>
+ */
+public final class TokenStream {
+
+	private static final Comparator<SyntaxToken> BY_START = (token, otherToken) -> compare(token.range().start(),
+			otherToken.range().start());
+
+	private final List<SyntaxToken> tokens;
+
+	private TokenStream(List<SyntaxToken> pTokens) {
+		tokens = pTokens;
+	}
+
+	/**
+	 * Collects the tokens of a tree in source order. sonar-java does not visit
+	 * the tokens in source order, e.g. it visits the brackets of the C-style
+	 * array declarator <code>int a[]</code> before the name, and visits the
+	 * type shared by the declarators of <code>int a, b;</code> once per
+	 * declarator. The tokens are therefore sorted by their start and every
+	 * token is kept once, so the lookups can use a binary search.
+	 *
+	 * @param pTree
+	 *            the tree, usually the compilation unit.
+	 * @return the token stream.
+	 */
+	public static TokenStream of(Tree pTree) {
+		return new TokenStream(new TokenCollector().collect(pTree));
+	}
+
+	/**
+	 * Feeds the texts and ranges of the tokens and comments into a digest.
+	 * Two files with the same digest have the same tokens at the same
+	 * positions, so all neighbors derived from the ranges are equal.
+	 *
+	 * @param pDigest
+	 *            the digest to update.
+	 */
+	public void digest(MessageDigest pDigest) {
+		for (final SyntaxToken token : tokens) {
+			for (final SyntaxTrivia trivia : token.trivias()) {
+				digest(pDigest, trivia.comment(), trivia.range());
+			}
+			digest(pDigest, token.text(), token.range());
+		}
+	}
+
+	private static void digest(MessageDigest pDigest, String pText, Range pRange) {
+		final Position start = pRange.start();
+		final Position end = pRange.end();
+		pDigest.update((start.line() + ":" + start.column() + "-" + end.line() + ":" + end.column() + " ")
+				.getBytes(StandardCharsets.UTF_8));
+		pDigest.update(pText.getBytes(StandardCharsets.UTF_8));
+		pDigest.update((byte) 0);
+	}
+
+	/**
+	 * Gets the kind of the left neighbor of a token.
+	 *
+	 * @param pSyntaxToken
+	 *            the token.
+	 * @return the kind of the left neighbor.
+	 */
+	public Neighbor getLeftNeighbor(SyntaxToken pSyntaxToken) {
+		final Position start = pSyntaxToken.range().start();
+
+		final List<SyntaxTrivia> trivias = pSyntaxToken.trivias();
+		final Neighbor result;
+		if (!trivias.isEmpty()) {
+			result = classify(trivias.get(trivias.size() - 1).range().end(), start);
+
+		} else {
+			final int index = indexOf(pSyntaxToken);
+			if (index > 0) {
+				result = classify(tokens.get(index - 1).range().end(), start);
+
+			} else if (start.line() > 1) {
+				result = Neighbor.LINE_BREAK;
+
+			} else {
+				result = start.column() > 1 ? Neighbor.WHITESPACE : Neighbor.NONE;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the kind of the right neighbor of a token.
+	 *
+	 * @param pSyntaxToken
+	 *            the token.
+	 * @return the kind of the right neighbor.
+	 */
+	public Neighbor getRightNeighbor(SyntaxToken pSyntaxToken) {
+		final int index = indexOf(pSyntaxToken);
+
+		Neighbor result = Neighbor.NONE;
+		if (index >= 0 && index + 1 < tokens.size()) {
+			final SyntaxToken nextToken = tokens.get(index + 1);
+			final List<SyntaxTrivia> trivias = nextToken.trivias();
+			final Position nextStart = trivias.isEmpty() ? nextToken.range().start()
+					: trivias.get(0).range().start();
+
+			result = classify(pSyntaxToken.range().end(), nextStart);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks if a token is preceded by an annotation name, i.e. by
+	 * <code>@</code> followed by an identifier and optional whitespace.
+	 *
+	 * @param pSyntaxToken
+	 *            the token.
+	 * @return <code>true</code> if the token is preceded by an annotation name.
+	 */
+	public boolean isPrecededByAnnotation(SyntaxToken pSyntaxToken) {
+		final int index = indexOf(pSyntaxToken);
+		if (index < 1 || !pSyntaxToken.trivias().isEmpty()) {
+			return false;
+		}
+
+		final SyntaxToken previousToken = tokens.get(index - 1);
+		boolean result = "@".equals(previousToken.text());
+		if (!result && index > 1 && previousToken.trivias().isEmpty() && isWord(previousToken.text())) {
+			final SyntaxToken atToken = tokens.get(index - 2);
+			result = "@".equals(atToken.text()) && compare(atToken.range().end(), previousToken.range().start()) == 0;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Finds the token starting at a position.
+	 *
+	 * @param pLine
+	 *            the line of the token start.
+	 * @param pColumn
+	 *            the column of the token start.
+	 * @return the token, <code>null</code> if no token starts at the position.
+	 */
+	public SyntaxToken findToken(int pLine, int pColumn) {
+		SyntaxToken result = null;
+
+		int low = 0;
+		int high = tokens.size() - 1;
+		while (result == null && low <= high) {
+			final int middle = (low + high) >>> 1;
+			final Position start = tokens.get(middle).range().start();
+			final int comparison = start.line() != pLine ? Integer.compare(start.line(), pLine)
+					: Integer.compare(start.column(), pColumn);
+
+			if (comparison < 0) {
+				low = middle + 1;
+
+			} else if (comparison > 0) {
+				high = middle - 1;
+
+			} else {
+				result = tokens.get(middle);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Finds the trees the issues of a previous analysis were reported on: the
+	 * nearest tree of the reported kind enclosing the checked token.
+	 *
+	 * @param pCachedIssues
+	 *            the issues.
+	 * @return the trees in the order of the issues, <code>null</code> if any
+	 *         of them cannot be found.
+	 */
+	List<Tree> findReportTrees(List<CachedIssue> pCachedIssues) {
+		final List<Tree> result = new ArrayList<>(pCachedIssues.size());
+
+		for (final CachedIssue cachedIssue : pCachedIssues) {
+			Tree reportTree = findToken(cachedIssue.getLine(), cachedIssue.getColumn());
+			while (reportTree != null && !reportTree.is(cachedIssue.getReportKind())) {
+				reportTree = reportTree.parent();
+			}
+			if (reportTree == null) {
+				return null;
+			}
+			result.add(reportTree);
+		}
+
+		return result;
+	}
+
+	private static boolean isWord(String pText) {
+		for (int i = 0; i < pText.length(); i++) {
+			final char c = pText.charAt(i);
+			if (!(Character.isLetterOrDigit(c) || c == '_') || c > 0x7F) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Neighbor classify(Position pLeftEnd, Position pRightStart) {
+		Neighbor result = Neighbor.NONE;
+		if (pLeftEnd.line() < pRightStart.line()) {
+			result = Neighbor.LINE_BREAK;
+
+		} else if (pLeftEnd.column() < pRightStart.column()) {
+			result = Neighbor.WHITESPACE;
+		}
+		return result;
+	}
+
+	private static int compare(Position pPosition, Position pOtherPosition) {
+		final int result = Integer.compare(pPosition.line(), pOtherPosition.line());
+		return result != 0 ? result : Integer.compare(pPosition.column(), pOtherPosition.column());
+	}
+
+	/**
+	 * Finds the index of a token by a binary search for the first token
+	 * starting at the same position. Tokens sharing a start position, e.g.
+	 * the empty end-of-file token, are told apart by their identity.
+	 *
+	 * @return the index of the token, <code>-1</code> if it isn't part of the
+	 *         stream.
+	 */
+	private int indexOf(SyntaxToken pSyntaxToken) {
+		final Position start = pSyntaxToken.range().start();
+
+		int low = 0;
+		int high = tokens.size();
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (compare(tokens.get(middle).range().start(), start) < 0) {
+				low = middle + 1;
+
+			} else {
+				high = middle;
+			}
+		}
+
+		for (int i = low; i < tokens.size() && compare(tokens.get(i).range().start(), start) == 0; i++) {
+			if (tokens.get(i) == pSyntaxToken) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Collects the tokens of a tree in source order.
+	 */
+	private static final class TokenCollector extends SubscriptionVisitor {
+
+		private final List<SyntaxToken> collectedTokens = new ArrayList<>();
+
+		@Override
+		public List<Kind> nodesToVisit() {
+			return Collections.singletonList(Kind.TOKEN);
+		}
+
+		@Override
+		public void visitToken(SyntaxToken pSyntaxToken) {
+			collectedTokens.add(pSyntaxToken);
+		}
+
+		List<SyntaxToken> collect(Tree pTree) {
+			scanTree(pTree);
+
+			// a stable sort, which keeps the visit order of tokens sharing a start, e.g. the end-of-file token
+			collectedTokens.sort(BY_START);
+
+			final List<SyntaxToken> result = new ArrayList<>(collectedTokens.size());
+			for (final SyntaxToken token : collectedTokens) {
+				if (!containsSameStart(result, token)) {
+					result.add(token);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Checks if a token is among the tokens sharing its start at the end
+		 * of the sorted tokens.
+		 */
+		private static boolean containsSameStart(List<SyntaxToken> pTokens, SyntaxToken pSyntaxToken) {
+			final Position start = pSyntaxToken.range().start();
+			for (int i = pTokens.size() - 1; i >= 0 && compare(pTokens.get(i).range().start(), start) == 0; i--) {
+				if (pTokens.get(i) == pSyntaxToken) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sonar.api.config.Configuration;
+import org.sonar.api.scanner.ScannerSide;
+import org.sonarsource.api.sonarlint.SonarLintSide;
+
+import de.johannes.sonarqube.checkstyle.rules.plugin.JavaRulesPlugin;
+
+/**
+ * Metrics of the rules of this plugin for the running analysis. The counters
+ * of the rules are switched on by the scanner property
+ * {@value de.johannes.sonarqube.checkstyle.rules.plugin.JavaRulesPlugin#METRICS_ENABLED_KEY},
+ * the slowest files independently of them by
+ * {@value de.johannes.sonarqube.checkstyle.rules.plugin.JavaRulesPlugin#SLOWEST_FILES_KEY}.
+ * <p>
+ * The metrics are a component of the analysis: the scanner creates them for
+ * each analysis and injects them into the
+ * {@link de.johannes.sonarqube.checkstyle.rules.plugin.JavaFileCheckRegistrar},
+ * which hands them to the rules it creates. Analyses running side by side
+ * therefore never count into each other's metrics. While both are off, the
+ * rules don't count anything.
+ */
+@ScannerSide
+@SonarLintSide
+public class AnalysisMetrics {
+
+	/** File name of the JSON report of the slowest files in the working directory of the scanner. */
+	public static final String DEFAULT_SLOWEST_FILES_REPORT = "johannes-checkstyle-slowest-files.json";
+
+	private final boolean enabled;
+	private final Map<String, RuleMetrics> ruleMetrics = new ConcurrentHashMap<>();
+	private final SlowestFiles slowestFiles;
+	private final String slowestFilesReport;
+
+	public AnalysisMetrics(Configuration pConfiguration) {
+		enabled = pConfiguration.getBoolean(JavaRulesPlugin.METRICS_ENABLED_KEY).orElse(false);
+		slowestFiles = new SlowestFiles(pConfiguration.getInt(JavaRulesPlugin.SLOWEST_FILES_KEY).orElse(0));
+		slowestFilesReport = pConfiguration.get(JavaRulesPlugin.SLOWEST_FILES_REPORT_KEY)
+				.orElse(DEFAULT_SLOWEST_FILES_REPORT);
+	}
+
+	/**
+	 * @return <code>true</code> if the counters of the rules or the slowest
+	 *         files are switched on.
+	 */
+	public boolean isActive() {
+		return enabled || isReportingSlowestFiles();
+	}
+
+	/**
+	 * @return <code>true</code> if the counters of the rules are switched on.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return <code>true</code> if the slowest files are switched on.
+	 */
+	public boolean isReportingSlowestFiles() {
+		return slowestFiles.getCapacity() > 0;
+	}
+
+	/**
+	 * @return the path of the JSON report of the slowest files, relative to
+	 *         the working directory of the scanner,
+	 *         {@value #DEFAULT_SLOWEST_FILES_REPORT} by default.
+	 */
+	public String getSlowestFilesReport() {
+		return slowestFilesReport;
+	}
+
+	/**
+	 * Gets the counters of a rule, creating them on the first request.
+	 *
+	 * @param pRuleKey
+	 *            the key of the rule.
+	 * @return the counters of the rule.
+	 */
+	public RuleMetrics forRule(String pRuleKey) {
+		return ruleMetrics.computeIfAbsent(pRuleKey, RuleMetrics::new);
+	}
+
+	/**
+	 * @return the files the rules spent the most time on.
+	 */
+	public SlowestFiles getSlowestFiles() {
+		return slowestFiles;
+	}
+
+	/**
+	 * @return the counters of all rules, ordered by rule key.
+	 */
+	public List<RuleMetrics> getRuleMetrics() {
+		final List<RuleMetrics> result = new ArrayList<>(ruleMetrics.values());
+		result.sort(Comparator.comparing(RuleMetrics::getRuleKey));
+		return result;
+	}
+}
@@ -0,0 +1,92 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a rule analyzing a file. The event spans the whole
+ * file, including the visits of the other rules sonar-java interleaves with
+ * the visits of this rule; the time spent in this rule alone is recorded as
+ * {@link #checkDuration}.
+ */
+@Name("de.johannes.sonarqube.checkstyle.CheckFile")
+@Label("Check File")
+@Category({ "SonarQube", "Checkstyle Rules" })
+@Description("A rule analyzing a file")
+@StackTrace(false)
+public final class CheckFileEvent extends Event {
+
+	private static final EventType EVENT_TYPE = EventType.getEventType(CheckFileEvent.class);
+
+	@Label("Rule")
+	private String rule;
+
+	@Label("File")
+	private String file;
+
+	@Label("Lines")
+	private int lines;
+
+	@Label("Visits")
+	@Description("Number of nodes visited by the rule")
+	private long visits;
+
+	@Label("Tokens")
+	@Description("Number of tokens whose whitespace the rule evaluated")
+	private long tokens;
+
+	@Label("Issues")
+	private long issues;
+
+	@Label("Check Duration")
+	@Description("Time spent in the node visits of the rule")
+	@Timespan(Timespan.NANOSECONDS)
+	private long checkDuration;
+
+	/**
+	 * @return <code>true</code> if a recording has enabled the event.
+	 */
+	public static boolean isTypeEnabled() {
+		return EVENT_TYPE.isEnabled();
+	}
+
+	/**
+	 * Ends the event and commits it, if it passes the settings of the
+	 * recording.
+	 *
+	 * @param pRule
+	 *            the key of the rule.
+	 * @param pFile
+	 *            the analyzed file.
+	 * @param pLines
+	 *            the number of lines of the file.
+	 * @param pVisits
+	 *            the number of visited nodes.
+	 * @param pTokens
+	 *            the number of evaluated tokens.
+	 * @param pIssues
+	 *            the number of raised issues.
+	 * @param pCheckDuration
+	 *            the nanoseconds spent in the node visits.
+	 */
+	public void commit(String pRule, String pFile, int pLines, long pVisits, long pTokens, long pIssues,
+			long pCheckDuration) {
+		end();
+		if (shouldCommit()) {
+			rule = pRule;
+			file = pFile;
+			lines = pLines;
+			visits = pVisits;
+			tokens = pTokens;
+			issues = pIssues;
+			checkDuration = pCheckDuration;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import java.io.IOException;
+
+/**
+ * Writes JSON strings without building them in memory first. Used for the
+ * report of the slowest files and by the standalone runner.
+ */
+public final class JsonStrings {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private JsonStrings() {
+	}
+
+	/**
+	 * Converts a string to a quoted and escaped JSON string.
+	 *
+	 * @param pValue
+	 *            the string, <code>null</code> is converted to
+	 *            <code>null</code>.
+	 * @return the JSON string.
+	 */
+	public static String toJsonString(String pValue) {
+		final StringBuilder result = new StringBuilder();
+		try {
+			write(result, pValue);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to append to a StringBuilder", e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Writes a string as a quoted and escaped JSON string.
+	 *
+	 * @param pOut
+	 *            the writer.
+	 * @param pValue
+	 *            the string, <code>null</code> is written as
+	 *            <code>null</code>.
+	 * @throws IOException
+	 *             if the string cannot be written.
+	 */
+	public static void write(Appendable pOut, String pValue) throws IOException {
+		if (pValue == null) {
+			pOut.append("null");
+			return;
+		}
+
+		pOut.append('"');
+		int unescapedStart = 0;
+		for (int i = 0; i < pValue.length(); i++) {
+			final char c = pValue.charAt(i);
+			if (c == '"' || c == '\\' || c < 0x20) {
+				pOut.append(pValue, unescapedStart, i);
+				if (c == '"' || c == '\\') {
+					pOut.append('\\').append(c);
+				} else {
+					pOut.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+				}
+				unescapedStart = i + 1;
+			}
+		}
+		pOut.append(pValue, unescapedStart, pValue.length());
+		pOut.append('"');
+	}
+}
@@ -0,0 +1,85 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single rule, aggregated over all files of an analysis. The
+ * counters may be updated concurrently by rule instances analyzing different
+ * files.
+ */
+public final class RuleMetrics {
+
+	private final String ruleKey;
+	private final LongAdder files = new LongAdder();
+	private final LongAdder nodes = new LongAdder();
+	private final LongAdder tokens = new LongAdder();
+	private final LongAdder issues = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final LongAdder textChars = new LongAdder();
+
+	RuleMetrics(String pRuleKey) {
+		ruleKey = pRuleKey;
+	}
+
+	/**
+	 * Adds the counters of an analyzed file.
+	 *
+	 * @param pNodes
+	 *            the number of visited nodes.
+	 * @param pTokens
+	 *            the number of tokens inspected for whitespace.
+	 * @param pIssues
+	 *            the number of raised issues.
+	 * @param pNanos
+	 *            the nanoseconds spent visiting the nodes.
+	 * @param pTextChars
+	 *            the number of characters of source text loaded for the
+	 *            file, <code>0</code> if no text was needed.
+	 */
+	public void addFile(long pNodes, long pTokens, long pIssues, long pNanos, long pTextChars) {
+		files.increment();
+		nodes.add(pNodes);
+		tokens.add(pTokens);
+		issues.add(pIssues);
+		nanos.add(pNanos);
+		textChars.add(pTextChars);
+	}
+
+	public String getRuleKey() {
+		return ruleKey;
+	}
+
+	public long getFiles() {
+		return files.sum();
+	}
+
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	public long getIssues() {
+		return issues.sum();
+	}
+
+	public long getNanos() {
+		return nanos.sum();
+	}
+
+	public long getTextChars() {
+		return textChars.sum();
+	}
+
+	/**
+	 * @return a single summary line of the counters.
+	 */
+	public String getSummary() {
+		return String.format("%s: %d files, %d nodes, %d tokens, %d issues, %d ms, %d chars of text", ruleKey,
+				getFiles(), getNodes(), getTokens(), getIssues(), TimeUnit.NANOSECONDS.toMillis(getNanos()),
+				getTextChars());
+	}
+}
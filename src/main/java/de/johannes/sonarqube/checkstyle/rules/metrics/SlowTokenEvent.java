@@ -0,0 +1,91 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of a rule evaluating the whitespace next to a single
+ * token that took longer than the threshold. The default threshold can be
+ * lowered in the settings of the recording to see more tokens.
+ */
+@Name("de.johannes.sonarqube.checkstyle.SlowToken")
+@Label("Slow Token")
+@Category({ "SonarQube", "Checkstyle Rules" })
+@Description("A token evaluation of a rule above the threshold")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class SlowTokenEvent extends Event {
+
+	private static final EventType EVENT_TYPE = EventType.getEventType(SlowTokenEvent.class);
+
+	@Label("Rule")
+	private String rule;
+
+	@Label("File")
+	private String file;
+
+	@Label("Token")
+	@Description("Text of the evaluated token")
+	private String token;
+
+	@Label("Kind")
+	@Description("Kind of the tree owning the token")
+	private String kind;
+
+	@Label("Side")
+	@Description("Side of the token the whitespace was evaluated on: before or after")
+	private String side;
+
+	@Label("Line")
+	private int line;
+
+	@Label("Column")
+	private int column;
+
+	/**
+	 * @return <code>true</code> if a recording has enabled the event.
+	 */
+	public static boolean isTypeEnabled() {
+		return EVENT_TYPE.isEnabled();
+	}
+
+	/**
+	 * Ends the event and commits it, if it passes the threshold of the
+	 * recording.
+	 *
+	 * @param pRule
+	 *            the key of the rule.
+	 * @param pFile
+	 *            the analyzed file.
+	 * @param pToken
+	 *            the text of the evaluated token.
+	 * @param pKind
+	 *            the kind of the tree owning the token.
+	 * @param pSide
+	 *            <code>before</code> or <code>after</code>.
+	 * @param pLine
+	 *            the line of the token.
+	 * @param pColumn
+	 *            the column of the token.
+	 */
+	public void commit(String pRule, String pFile, String pToken, String pKind, String pSide, int pLine,
+			int pColumn) {
+		end();
+		if (shouldCommit()) {
+			rule = pRule;
+			file = pFile;
+			token = pToken;
+			kind = pKind;
+			side = pSide;
+			line = pLine;
+			column = pColumn;
+			commit();
+		}
+	}
+}
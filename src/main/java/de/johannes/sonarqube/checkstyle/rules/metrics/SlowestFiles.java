@@ -0,0 +1,113 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The files the rules of this plugin spent the most time on. Only a bounded
+ * number of files is kept: a min-heap ordered by time, whose fastest file is
+ * replaced by any slower one.
+ */
+public final class SlowestFiles {
+
+	private static final Comparator<FileTime> BY_NANOS = Comparator.comparingLong(FileTime::getNanos);
+
+	private final int capacity;
+	private final PriorityQueue<FileTime> heap;
+
+	SlowestFiles(int pCapacity) {
+		capacity = pCapacity;
+		heap = new PriorityQueue<>(Math.max(1, pCapacity), BY_NANOS);
+	}
+
+	/**
+	 * @return the number of files kept.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Offers an analyzed file. The file is kept if it is one of the slowest
+	 * files so far.
+	 *
+	 * @param pFile
+	 *            the file.
+	 * @param pLines
+	 *            the number of lines of the file.
+	 * @param pNanos
+	 *            the nanoseconds the rules spent on the file.
+	 */
+	public synchronized void offer(String pFile, int pLines, long pNanos) {
+		if (heap.size() < capacity) {
+			heap.add(new FileTime(pFile, pLines, pNanos));
+
+		} else if (capacity > 0 && heap.peek().getNanos() < pNanos) {
+			heap.poll();
+			heap.add(new FileTime(pFile, pLines, pNanos));
+		}
+	}
+
+	/**
+	 * @return the slowest files, the slowest first.
+	 */
+	public synchronized List<FileTime> getFiles() {
+		final List<FileTime> result = new ArrayList<>(heap);
+		result.sort(BY_NANOS.reversed());
+		return result;
+	}
+
+	/**
+	 * @return the slowest files as a JSON array, the slowest first.
+	 */
+	public String toJson() {
+		final StringBuilder json = new StringBuilder("[");
+
+		final List<FileTime> files = getFiles();
+		for (int i = 0; i < files.size(); i++) {
+			final FileTime file = files.get(i);
+			json.append(i == 0 ? "\n" : ",\n")
+					.append("  {\"file\": ").append(JsonStrings.toJsonString(file.getFile()))
+					.append(", \"lines\": ").append(file.getLines())
+					.append(", \"nanos\": ").append(file.getNanos())
+					.append('}');
+		}
+
+		return json.append(files.isEmpty() ? "]\n" : "\n]\n").toString();
+	}
+
+	/**
+	 * Time the rules spent on a file.
+	 */
+	public static final class FileTime {
+		private final String file;
+		private final int lines;
+		private final long nanos;
+
+		FileTime(String pFile, int pLines, long pNanos) {
+			file = pFile;
+			lines = pLines;
+			nanos = pNanos;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		public int getLines() {
+			return lines;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (%d lines): %d ms", file, lines, TimeUnit.NANOSECONDS.toMillis(nanos));
+		}
+	}
+}
@@ -1,9 +1,16 @@
 package de.johannes.sonarqube.checkstyle.rules.plugin;
 
+import org.sonar.api.scanner.ScannerSide;
 import org.sonar.plugins.java.api.CheckRegistrar;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonarsource.api.sonarlint.SonarLintSide;
 
+import de.johannes.sonarqube.checkstyle.rules.checks.IncrementalResults;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -11,17 +18,60 @@ import java.util.List;
  * source code analysis.
  * <p>
  * This class is a batch extension by implementing the {@link org.sonar.plugins.java.api.CheckRegistrar} interface.
+ * The components of the analysis are injected into the registrar, which creates the main checks itself and
+ * hands them the components, so the checks of each analysis only see the components of their own analysis.
  */
+@ScannerSide
 @SonarLintSide
 public class JavaFileCheckRegistrar implements CheckRegistrar {
 
+    private final AnalysisMetrics analysisMetrics;
+    private final IncrementalResults incrementalResults;
+
+    public JavaFileCheckRegistrar(final AnalysisMetrics pAnalysisMetrics,
+            final IncrementalResults pIncrementalResults) {
+        analysisMetrics = pAnalysisMetrics;
+        incrementalResults = pIncrementalResults;
+    }
+
     /**
-     * Register the classes that will be used to instantiate checks during analysis.
+     * Register the checks that are executed during analysis.
      */
     @Override
     public void register(final RegistrarContext pRegistrarContext) {
-        // Call to registerClassesForRepository to associate the classes with the correct repository key
-        pRegistrarContext.registerClassesForRepository(JavaRulesDefinition.REPOSITORY_KEY, checkClasses(), testCheckClasses());
+        // Call to registerClassesForRepository to associate the checks with the correct repository key
+        pRegistrarContext.registerClassesForRepository(JavaRulesDefinition.REPOSITORY_KEY, createChecks(),
+                testCheckClasses());
+    }
+
+    /**
+     * Creates the main checks and hands them the components of the analysis. sonar-java passes the registered
+     * checks on to {@link org.sonar.api.batch.rule.Checks#addAnnotatedChecks(Iterable)}, which takes check
+     * instances as well as check classes, only the declared type of the registrar context is limited to classes.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Iterable<Class<? extends JavaCheck>> createChecks() {
+        final List<JavaCheck> result = new ArrayList<>();
+        for (final Class<? extends JavaCheck> checkClass : checkClasses()) {
+            result.add(createCheck(checkClass));
+        }
+        return (Iterable) result;
+    }
+
+    private JavaCheck createCheck(final Class<? extends JavaCheck> pCheckClass) {
+        final JavaCheck result;
+        try {
+            result = pCheckClass.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException
+                | NoSuchMethodException e) {
+            throw new IllegalStateException("Cannot instantiate " + pCheckClass.getName(), e);
+        }
+
+        if (result instanceof NoWhitespaceCheck) {
+            ((NoWhitespaceCheck) result).setAnalysisMetrics(analysisMetrics);
+            ((NoWhitespaceCheck) result).setIncrementalResults(incrementalResults);
+        }
+        return result;
     }
 
     /**
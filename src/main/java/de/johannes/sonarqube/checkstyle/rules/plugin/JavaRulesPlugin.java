@@ -1,6 +1,11 @@
 package de.johannes.sonarqube.checkstyle.rules.plugin;
 
 import org.sonar.api.Plugin;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.PropertyDefinition;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.IncrementalResults;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
 
 /**
  * Entry point of your plugin containing your custom rules. See also <a href=
@@ -9,6 +14,27 @@ import org.sonar.api.Plugin;
  */
 public class JavaRulesPlugin implements Plugin {
 
+	/**
+	 * Scanner property to log timings and counters of the rules at the end of
+	 * the analysis.
+	 */
+	public static final String METRICS_ENABLED_KEY = "sonar.johannes.checkstyle.metrics.enabled";
+
+	/**
+	 * Scanner property for the number of slowest files logged at the end of
+	 * the analysis, independently of the rule metrics. 0 switches the slowest
+	 * files off.
+	 */
+	public static final String SLOWEST_FILES_KEY = "sonar.johannes.checkstyle.slowestFiles";
+
+	/**
+	 * Scanner property for the path of the JSON report of the slowest files,
+	 * relative to the working directory of the scanner. Without a path, the
+	 * report is written to {@value AnalysisMetrics#DEFAULT_SLOWEST_FILES_REPORT}
+	 * in the working directory.
+	 */
+	public static final String SLOWEST_FILES_REPORT_KEY = "sonar.johannes.checkstyle.slowestFiles.report";
+
 	@Override
 	public void define(final Context pContext) {
 		// server extensions -> objects are instantiated during server startup
@@ -16,6 +42,33 @@ public class JavaRulesPlugin implements Plugin {
 
 		// batch extensions -> objects are instantiated during code analysis
 		pContext.addExtension(JavaFileCheckRegistrar.class);
+		pContext.addExtension(AnalysisMetrics.class);
+		pContext.addExtension(MetricsPostJob.class);
+		pContext.addExtension(IncrementalResults.class);
+
+		pContext.addExtension(PropertyDefinition.builder(METRICS_ENABLED_KEY)
+				.name("Rule metrics")
+				.description("Log timings and counters of the rules at the end of the analysis.")
+				.category(JavaRulesDefinition.REPOSITORY_NAME)
+				.type(PropertyType.BOOLEAN)
+				.defaultValue("false")
+				.build());
+		pContext.addExtension(PropertyDefinition.builder(SLOWEST_FILES_KEY)
+				.name("Slowest files")
+				.description("Number of files the rules spent the most time on that are logged at the end of the "
+						+ "analysis, 0 for none. Independent of the rule metrics.")
+				.category(JavaRulesDefinition.REPOSITORY_NAME)
+				.type(PropertyType.INTEGER)
+				.defaultValue("0")
+				.build());
+		pContext.addExtension(PropertyDefinition.builder(SLOWEST_FILES_REPORT_KEY)
+				.name("Slowest files report")
+				.description("Path of the JSON report the slowest files are also written to, relative to the "
+						+ "working directory of the scanner.")
+				.category(JavaRulesDefinition.REPOSITORY_NAME)
+				.type(PropertyType.STRING)
+				.defaultValue(AnalysisMetrics.DEFAULT_SLOWEST_FILES_REPORT)
+				.build());
 	}
 
 }
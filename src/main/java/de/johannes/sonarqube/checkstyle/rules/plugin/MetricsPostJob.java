@@ -0,0 +1,75 @@
+package de.johannes.sonarqube.checkstyle.rules.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.postjob.PostJob;
+import org.sonar.api.batch.postjob.PostJobContext;
+import org.sonar.api.batch.postjob.PostJobDescriptor;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+import de.johannes.sonarqube.checkstyle.rules.metrics.RuleMetrics;
+import de.johannes.sonarqube.checkstyle.rules.metrics.SlowestFiles;
+
+/**
+ * Logs a summary line per rule at the end of the analysis, if the metrics
+ * were switched on by {@link JavaRulesPlugin#METRICS_ENABLED_KEY}, and the
+ * slowest files, if they were switched on by
+ * {@link JavaRulesPlugin#SLOWEST_FILES_KEY}. The slowest files are also
+ * written to a JSON report in the working directory of the scanner, e.g.
+ * <code>.scannerwork</code>, whose path can be changed by
+ * {@link JavaRulesPlugin#SLOWEST_FILES_REPORT_KEY}.
+ */
+public class MetricsPostJob implements PostJob {
+
+	private static final Logger LOG = Loggers.get(MetricsPostJob.class);
+
+	private final AnalysisMetrics metrics;
+	private final FileSystem fileSystem;
+
+	public MetricsPostJob(AnalysisMetrics pMetrics, FileSystem pFileSystem) {
+		metrics = pMetrics;
+		fileSystem = pFileSystem;
+	}
+
+	@Override
+	public void describe(PostJobDescriptor pDescriptor) {
+		pDescriptor.name(JavaRulesDefinition.REPOSITORY_NAME + " metrics");
+	}
+
+	@Override
+	public void execute(PostJobContext pContext) {
+		if (metrics.isEnabled()) {
+			for (final RuleMetrics ruleMetrics : metrics.getRuleMetrics()) {
+				LOG.info(ruleMetrics.getSummary());
+			}
+		}
+		if (metrics.isReportingSlowestFiles()) {
+			reportSlowestFiles(metrics.getSlowestFiles());
+		}
+	}
+
+	private void reportSlowestFiles(SlowestFiles pSlowestFiles) {
+		for (final SlowestFiles.FileTime fileTime : pSlowestFiles.getFiles()) {
+			LOG.info("Slowest file {}", fileTime);
+		}
+
+		writeSlowestFilesReport(pSlowestFiles, fileSystem.workDir().toPath().resolve(metrics.getSlowestFilesReport()));
+	}
+
+	private static void writeSlowestFilesReport(SlowestFiles pSlowestFiles, Path pReport) {
+		try {
+			if (pReport.getParent() != null) {
+				Files.createDirectories(pReport.getParent());
+			}
+			Files.write(pReport, pSlowestFiles.toJson().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			LOG.warn("Unable to write the slowest files to {}: {}", pReport, e.getMessage());
+		}
+	}
+}
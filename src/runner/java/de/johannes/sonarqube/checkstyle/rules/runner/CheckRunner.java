@@ -0,0 +1,444 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.check.Rule;
+import org.sonar.java.model.JParser;
+import org.sonar.java.model.JParserConfig;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.SubscriptionVisitor;
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+
+/**
+ * Runs checks on parsed files outside of a SonarQube analysis: parses a file
+ * with the sonar-java frontend and stands in for the scanner context the
+ * checks report their issues to. Part of the standalone runner, not of the
+ * plugin; the tests and the benchmarks use it as well, as they need to parse a
+ * file once and run checks on it many times.
+ * <p>
+ * An issue of a {@link NoWhitespaceCheck} is located on the token whose
+ * whitespace violates the rule, like Checkstyle locates its violations; in
+ * SonarQube, the issue spans the tree it is reported on.
+ */
+public final class CheckRunner {
+
+	private static final JavaVersion JAVA_VERSION = new JavaVersionImpl(JavaVersionImpl.MAX_SUPPORTED);
+	private static final JParserConfig PARSER_CONFIG = JParserConfig.Mode.FILE_BY_FILE.create(JAVA_VERSION,
+			Collections.emptyList());
+
+	private CheckRunner() {
+	}
+
+	/**
+	 * Parses a Java source with the sonar-java frontend.
+	 *
+	 * @param pUnitName
+	 *            the name of the compilation unit, e.g. <code>A.java</code>,
+	 *            or the path of its file.
+	 * @param pSource
+	 *            the source.
+	 * @return the parsed file.
+	 */
+	public static ParsedFile parse(String pUnitName, String pSource) {
+		final ASTParser astParser = PARSER_CONFIG.astParser();
+		final CompilationUnitTree tree = JParser.parse(astParser, JAVA_VERSION.effectiveJavaVersionAsString(),
+				pUnitName, pSource);
+		return new ParsedFile(pUnitName, pSource, tree);
+	}
+
+	/**
+	 * Scans a parsed file with a check. The check is driven the same way
+	 * sonar-java's visitor runner does, because an
+	 * {@link org.sonar.plugins.java.api.IssuableSubscriptionVisitor} must not
+	 * drive the visit of the tree itself.
+	 *
+	 * @param pCheck
+	 *            the check.
+	 * @param pParsedFile
+	 *            the parsed file.
+	 * @return the issues reported by the check.
+	 */
+	public static List<Issue> scan(SubscriptionVisitor pCheck, ParsedFile pParsedFile) {
+		return scan(pCheck, pParsedFile, null);
+	}
+
+	/**
+	 * Scans a parsed file with a check, using an analysis cache.
+	 *
+	 * @param pCheck
+	 *            the check.
+	 * @param pParsedFile
+	 *            the parsed file.
+	 * @param pCacheContext
+	 *            the analysis cache, <code>null</code> for none.
+	 * @return the issues reported by the check.
+	 */
+	public static List<Issue> scan(SubscriptionVisitor pCheck, ParsedFile pParsedFile, CacheContext pCacheContext) {
+		return scan(Collections.singletonList(pCheck), pParsedFile, pCacheContext);
+	}
+
+	/**
+	 * Scans a parsed file with several checks in a single walk of its tree, so
+	 * the checks share their per-file state as in a SonarQube analysis.
+	 *
+	 * @param pChecks
+	 *            the checks.
+	 * @param pParsedFile
+	 *            the parsed file.
+	 * @param pCacheContext
+	 *            the analysis cache, <code>null</code> for none.
+	 * @return the issues reported by the checks, in the order they were
+	 *         reported.
+	 */
+	public static List<Issue> scan(List<? extends SubscriptionVisitor> pChecks, ParsedFile pParsedFile,
+			CacheContext pCacheContext) {
+		final List<Issue> issues = new ArrayList<>();
+		final SyntaxToken[] checkedToken = new SyntaxToken[1];
+
+		for (final SubscriptionVisitor check : pChecks) {
+			if (check instanceof NoWhitespaceCheck) {
+				((NoWhitespaceCheck) check).setCheckedTokenListener(token -> checkedToken[0] = token);
+			}
+		}
+		try {
+			new VisitorRunner(pChecks).run(createContext(pParsedFile, issues, checkedToken, pCacheContext));
+		} finally {
+			for (final SubscriptionVisitor check : pChecks) {
+				if (check instanceof NoWhitespaceCheck) {
+					((NoWhitespaceCheck) check).setCheckedTokenListener(null);
+				}
+			}
+		}
+
+		return issues;
+	}
+
+	/**
+	 * Gets the key of a rule from the {@link Rule} annotation of its class or
+	 * of its nearest annotated superclass.
+	 *
+	 * @param pRuleClass
+	 *            the class of the rule.
+	 * @return the key, the simple name of the class if it isn't annotated.
+	 */
+	public static String getRuleKey(Class<?> pRuleClass) {
+		Class<?> ruleClass = pRuleClass;
+		while (ruleClass.getAnnotation(Rule.class) == null && ruleClass.getSuperclass() != null) {
+			ruleClass = ruleClass.getSuperclass();
+		}
+
+		final Rule rule = ruleClass.getAnnotation(Rule.class);
+		return rule == null ? pRuleClass.getSimpleName() : rule.key();
+	}
+
+	/**
+	 * Creates a scanner context for a parsed file that records the reported
+	 * issues. Only the methods used by the checks of this plugin are backed;
+	 * all others return their type's default value.
+	 *
+	 * @param pCheckedToken
+	 *            holds the checked token told by a {@link NoWhitespaceCheck}
+	 *            right before it reports an issue, which then locates the
+	 *            issue.
+	 */
+	@SuppressWarnings("unchecked")
+	private static JavaFileScannerContext createContext(ParsedFile pParsedFile, List<Issue> pIssues,
+			SyntaxToken[] pCheckedToken, CacheContext pCacheContext) {
+		final InputFile inputFile = createInputFile(pParsedFile);
+
+		return (JavaFileScannerContext) Proxy.newProxyInstance(CheckRunner.class.getClassLoader(),
+				new Class<?>[] { JavaFileScannerContext.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getTree":
+						return pParsedFile.getTree();
+					case "getInputFile":
+						return inputFile;
+					case "getCacheContext":
+						return pCacheContext;
+					case "getFileContent":
+						return pParsedFile.getSource();
+					case "getFileLines":
+						return Arrays.asList(pParsedFile.getSource().split("\\r\\n|\\n|\\r", -1));
+					case "reportIssue":
+						final Tree location = pCheckedToken[0] == null ? (Tree) args[1] : pCheckedToken[0];
+						pCheckedToken[0] = null;
+						pIssues.add(args.length == 5 && args[3] instanceof List
+								? new Issue((JavaCheck) args[0], location, (String) args[2],
+										(List<JavaFileScannerContext.Location>) args[3], (Integer) args[4])
+								: new Issue((JavaCheck) args[0], location, (String) args[2]));
+						return null;
+					case "addIssueOnFile":
+						pIssues.add(new Issue((JavaCheck) args[0], 0, 0, 0, 0, (String) args[1]));
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "JavaFileScannerContext[" + pParsedFile.getUnitName() + "]";
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	/**
+	 * Creates an input file whose key and path are the unit name of a parsed
+	 * file.
+	 */
+	private static InputFile createInputFile(ParsedFile pParsedFile) {
+		return (InputFile) Proxy.newProxyInstance(CheckRunner.class.getClassLoader(),
+				new Class<?>[] { InputFile.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "key":
+					case "filename":
+					case "toString":
+						return pParsedFile.getUnitName();
+					case "contents":
+						return pParsedFile.getSource();
+					case "charset":
+						return StandardCharsets.UTF_8;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> pType) {
+		Object result = null;
+		if (pType == boolean.class) {
+			result = Boolean.FALSE;
+		} else if (pType == int.class) {
+			result = 0;
+		} else if (pType == long.class) {
+			result = 0L;
+		}
+		return result;
+	}
+
+	/**
+	 * Visits a tree on behalf of checks: sets the context of each check,
+	 * forwards the subscribed nodes to the checks that subscribed to them and
+	 * leaves the file.
+	 */
+	private static final class VisitorRunner extends SubscriptionVisitor {
+		private final List<? extends SubscriptionVisitor> checks;
+		private final Map<Tree.Kind, List<SubscriptionVisitor>> checksByKind = new EnumMap<>(Tree.Kind.class);
+
+		VisitorRunner(List<? extends SubscriptionVisitor> pChecks) {
+			checks = pChecks;
+			for (final SubscriptionVisitor check : pChecks) {
+				for (final Tree.Kind kind : check.nodesToVisit()) {
+					checksByKind.computeIfAbsent(kind, key -> new ArrayList<>()).add(check);
+				}
+			}
+		}
+
+		void run(JavaFileScannerContext pContext) {
+			for (final SubscriptionVisitor check : checks) {
+				check.setContext(pContext);
+			}
+			scanTree(pContext.getTree());
+			for (final SubscriptionVisitor check : checks) {
+				check.leaveFile(pContext);
+			}
+		}
+
+		@Override
+		public List<Tree.Kind> nodesToVisit() {
+			return new ArrayList<>(checksByKind.keySet());
+		}
+
+		@Override
+		public void visitNode(Tree pTree) {
+			for (final SubscriptionVisitor check : checksByKind.get(pTree.kind())) {
+				check.visitNode(pTree);
+			}
+		}
+
+		@Override
+		public void leaveNode(Tree pTree) {
+			for (final SubscriptionVisitor check : checksByKind.get(pTree.kind())) {
+				check.leaveNode(pTree);
+			}
+		}
+
+		@Override
+		public void visitToken(SyntaxToken pSyntaxToken) {
+			for (final SubscriptionVisitor check : checksByKind.get(Tree.Kind.TOKEN)) {
+				check.visitToken(pSyntaxToken);
+			}
+		}
+
+		@Override
+		public void visitTrivia(SyntaxTrivia pSyntaxTrivia) {
+			for (final SubscriptionVisitor check : checksByKind.get(Tree.Kind.TRIVIA)) {
+				check.visitTrivia(pSyntaxTrivia);
+			}
+		}
+	}
+
+	/**
+	 * A source parsed by the sonar-java frontend.
+	 */
+	public static final class ParsedFile {
+		private final String unitName;
+		private final String source;
+		private final CompilationUnitTree tree;
+
+		ParsedFile(String pUnitName, String pSource, CompilationUnitTree pTree) {
+			unitName = pUnitName;
+			source = pSource;
+			tree = pTree;
+		}
+
+		public String getUnitName() {
+			return unitName;
+		}
+
+		public String getSource() {
+			return source;
+		}
+
+		public CompilationUnitTree getTree() {
+			return tree;
+		}
+	}
+
+	/**
+	 * An issue reported by a check.
+	 */
+	public static final class Issue {
+		private final JavaCheck check;
+		private final int line;
+		private final int column;
+		private final int endLine;
+		private final int endColumn;
+		private final String message;
+		private final List<JavaFileScannerContext.Location> secondaryLocations;
+		private final Integer cost;
+
+		Issue(JavaCheck pCheck, Tree pTree, String pMessage) {
+			this(pCheck, pTree, pMessage, Collections.emptyList(), null);
+		}
+
+		Issue(JavaCheck pCheck, Tree pTree, String pMessage, List<JavaFileScannerContext.Location> pSecondaryLocations,
+				Integer pCost) {
+			this(pCheck, pTree.firstToken(), pTree.lastToken(), pMessage, pSecondaryLocations, pCost);
+		}
+
+		private Issue(JavaCheck pCheck, SyntaxToken pFirstToken, SyntaxToken pLastToken, String pMessage,
+				List<JavaFileScannerContext.Location> pSecondaryLocations, Integer pCost) {
+			this(pCheck, pFirstToken == null ? 0 : pFirstToken.range().start().line(),
+					pFirstToken == null ? 0 : pFirstToken.range().start().column(),
+					pLastToken == null ? 0 : pLastToken.range().end().line(),
+					pLastToken == null ? 0 : pLastToken.range().end().column(), pMessage, pSecondaryLocations,
+					pCost);
+		}
+
+		public Issue(JavaCheck pCheck, int pLine, int pColumn, int pEndLine, int pEndColumn, String pMessage) {
+			this(pCheck, pLine, pColumn, pEndLine, pEndColumn, pMessage, Collections.emptyList(), null);
+		}
+
+		private Issue(JavaCheck pCheck, int pLine, int pColumn, int pEndLine, int pEndColumn, String pMessage,
+				List<JavaFileScannerContext.Location> pSecondaryLocations, Integer pCost) {
+			check = pCheck;
+			line = pLine;
+			column = pColumn;
+			endLine = pEndLine;
+			endColumn = pEndColumn;
+			message = pMessage;
+			secondaryLocations = pSecondaryLocations;
+			cost = pCost;
+		}
+
+		public JavaCheck getCheck() {
+			return check;
+		}
+
+		/**
+		 * @return the line of the issue, <code>0</code> for an issue on the
+		 *         file.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return the column of the issue, <code>0</code> for an issue on the
+		 *         file.
+		 */
+		public int getColumn() {
+			return column;
+		}
+
+		/**
+		 * @return the line the issue ends on, <code>0</code> for an issue on
+		 *         the file.
+		 */
+		public int getEndLine() {
+			return endLine;
+		}
+
+		/**
+		 * @return the column right after the end of the issue, <code>0</code>
+		 *         for an issue on the file.
+		 */
+		public int getEndColumn() {
+			return endColumn;
+		}
+
+		/**
+		 * @return the key of the rule that reported the issue.
+		 */
+		public String getRuleKey() {
+			return CheckRunner.getRuleKey(check.getClass());
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * @return the secondary locations of the issue, empty if it has none.
+		 */
+		public List<JavaFileScannerContext.Location> getSecondaryLocations() {
+			return secondaryLocations;
+		}
+
+		/**
+		 * @return the effort to fix the issue, <code>null</code> if it is not
+		 *         given.
+		 */
+		public Integer getCost() {
+			return cost;
+		}
+
+		@Override
+		public String toString() {
+			return line + ": " + message;
+		}
+	}
+}
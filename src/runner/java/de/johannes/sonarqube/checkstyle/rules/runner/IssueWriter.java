@@ -0,0 +1,94 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+
+/**
+ * Writes the issues of the standalone runner. The runner collects the issues
+ * of a file while the file is analyzed and hands them to the writer ordered by
+ * position once the file is done, so the issues are buffered per file. The
+ * writer itself keeps no issues.
+ */
+public interface IssueWriter {
+
+	/**
+	 * Writes an issue.
+	 *
+	 * @param pFile
+	 *            the path of the file of the issue.
+	 * @param pIssue
+	 *            the issue.
+	 * @throws IOException
+	 *             if the issue cannot be written.
+	 */
+	void write(String pFile, Issue pIssue) throws IOException;
+
+	/**
+	 * Completes the output after the last issue and flushes it. The
+	 * underlying writer is not closed.
+	 *
+	 * @throws IOException
+	 *             if the output cannot be written.
+	 */
+	void finish() throws IOException;
+
+	/**
+	 * Formats of the issues.
+	 */
+	enum Format {
+		/** One line per issue: <code>path:line:column: message [rule]</code>. */
+		TEXT,
+		/** One JSON object per line and issue. */
+		JSONL,
+		/** A SARIF 2.1.0 log. */
+		SARIF;
+
+		/**
+		 * Gets a format by its name, ignoring the case.
+		 *
+		 * @param pName
+		 *            the name.
+		 * @return the format.
+		 * @throws IllegalArgumentException
+		 *             if there is no format of the name.
+		 */
+		public static Format of(String pName) {
+			try {
+				return valueOf(pName.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown format " + pName, e);
+			}
+		}
+
+		/**
+		 * Creates a writer of this format.
+		 *
+		 * @param pWriter
+		 *            the writer to write the issues to.
+		 * @param pRuleKeys
+		 *            the keys of the rules that are run.
+		 * @return the issue writer.
+		 * @throws IOException
+		 *             if the start of the output cannot be written.
+		 */
+		public IssueWriter create(Writer pWriter, List<String> pRuleKeys) throws IOException {
+			final IssueWriter result;
+			switch (this) {
+			case JSONL:
+				result = new JsonLinesIssueWriter(pWriter);
+				break;
+			case SARIF:
+				result = new SarifIssueWriter(pWriter, pRuleKeys);
+				break;
+			default:
+				result = new TextIssueWriter(pWriter);
+				break;
+			}
+			return result;
+		}
+	}
+}
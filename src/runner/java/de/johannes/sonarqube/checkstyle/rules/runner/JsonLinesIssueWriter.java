@@ -0,0 +1,38 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.metrics.JsonStrings;
+
+/**
+ * Writes one JSON object per line and issue, e.g.
+ * <code>{"rule":"NoWhitespaceBeforeCheck","file":"A.java","startLine":2,"startColumn":12,"endLine":2,"endColumn":13,"message":"'.' is preceded by whitespace."}</code>.
+ * The range of an issue on the file is <code>0</code>.
+ */
+final class JsonLinesIssueWriter implements IssueWriter {
+
+	private final Writer writer;
+
+	JsonLinesIssueWriter(Writer pWriter) {
+		writer = pWriter;
+	}
+
+	@Override
+	public void write(String pFile, Issue pIssue) throws IOException {
+		writer.write("{\"rule\":");
+		JsonStrings.write(writer, pIssue.getRuleKey());
+		writer.write(",\"file\":");
+		JsonStrings.write(writer, pFile);
+		writer.write(",\"startLine\":" + pIssue.getLine() + ",\"startColumn\":" + pIssue.getColumn() + ",\"endLine\":"
+				+ pIssue.getEndLine() + ",\"endColumn\":" + pIssue.getEndColumn() + ",\"message\":");
+		JsonStrings.write(writer, pIssue.getMessage());
+		writer.write("}\n");
+	}
+
+	@Override
+	public void finish() throws IOException {
+		writer.flush();
+	}
+}
@@ -0,0 +1,100 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.sonar.check.RuleProperty;
+
+/**
+ * Sets the rule properties of a check outside of a SonarQube analysis, where
+ * they are otherwise injected by the scanner. The values are converted to the
+ * type of the field annotated with {@link RuleProperty}, as the scanner does.
+ */
+public final class RuleProperties {
+
+	private RuleProperties() {
+	}
+
+	/**
+	 * Sets rule properties of a check.
+	 *
+	 * @param pCheck
+	 *            the check.
+	 * @param pProperties
+	 *            the values by the keys of the rule properties.
+	 * @throws IllegalArgumentException
+	 *             if the check has no rule property of a key or a value cannot
+	 *             be converted.
+	 */
+	public static void apply(Object pCheck, Map<String, String> pProperties) {
+		for (final Map.Entry<String, String> property : pProperties.entrySet()) {
+			set(pCheck, property.getKey(), property.getValue());
+		}
+	}
+
+	/**
+	 * Sets a rule property of a check.
+	 *
+	 * @param pCheck
+	 *            the check.
+	 * @param pKey
+	 *            the key of the rule property.
+	 * @param pValue
+	 *            the value.
+	 * @throws IllegalArgumentException
+	 *             if the check has no rule property of the key or the value
+	 *             cannot be converted.
+	 */
+	public static void set(Object pCheck, String pKey, String pValue) {
+		final Field field = findField(pCheck.getClass(), pKey);
+		if (field == null) {
+			throw new IllegalArgumentException(
+					"Unknown rule property " + pKey + " of " + CheckRunner.getRuleKey(pCheck.getClass()));
+		}
+
+		field.setAccessible(true);
+		try {
+			field.set(pCheck, convert(field.getType(), pKey, pValue.trim()));
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Unable to set rule property " + pKey, e);
+		}
+	}
+
+	private static Field findField(Class<?> pCheckClass, String pKey) {
+		for (Class<?> checkClass = pCheckClass; checkClass != null; checkClass = checkClass.getSuperclass()) {
+			for (final Field field : checkClass.getDeclaredFields()) {
+				final RuleProperty ruleProperty = field.getAnnotation(RuleProperty.class);
+				if (ruleProperty != null && ruleProperty.key().equals(pKey)) {
+					return field;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Object convert(Class<?> pType, String pKey, String pValue) {
+		Object result = null;
+
+		if (pType == boolean.class || pType == Boolean.class) {
+			if (!"true".equalsIgnoreCase(pValue) && !"false".equalsIgnoreCase(pValue)) {
+				throw new IllegalArgumentException("Rule property " + pKey + " must be true or false: " + pValue);
+			}
+			result = Boolean.parseBoolean(pValue);
+
+		} else if (pType == int.class || pType == Integer.class) {
+			try {
+				result = Integer.parseInt(pValue);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Rule property " + pKey + " must be a number: " + pValue, e);
+			}
+
+		} else if (pType == String.class) {
+			result = pValue;
+
+		} else {
+			throw new IllegalArgumentException("Unsupported type " + pType.getName() + " of rule property " + pKey);
+		}
+
+		return result;
+	}
+}
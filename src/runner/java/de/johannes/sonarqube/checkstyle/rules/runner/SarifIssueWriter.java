@@ -0,0 +1,71 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.metrics.JsonStrings;
+
+/**
+ * Writes a <a href="https://docs.oasis-open.org/sarif/sarif/v2.1.0/">SARIF
+ * 2.1.0</a> log with a single run. The head of the log, including the rules,
+ * is written on creation, each issue is written as a result as soon as it is
+ * produced and the log is closed by {@link #finish()}. Issues on a file have
+ * no region.
+ */
+final class SarifIssueWriter implements IssueWriter {
+
+	private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+	private static final String TOOL_NAME = "johannes-checkstyle-rules";
+
+	private final Writer writer;
+	private boolean firstResult = true;
+
+	SarifIssueWriter(Writer pWriter, List<String> pRuleKeys) throws IOException {
+		writer = pWriter;
+
+		writer.write("{\"$schema\":\"" + SCHEMA + "\",\"version\":\"2.1.0\",\"runs\":[{\"tool\":{\"driver\":{\"name\":\""
+				+ TOOL_NAME + "\",\"rules\":[");
+		for (int i = 0; i < pRuleKeys.size(); i++) {
+			writer.write(i == 0 ? "{\"id\":" : ",{\"id\":");
+			JsonStrings.write(writer, pRuleKeys.get(i));
+			writer.write('}');
+		}
+		writer.write("]}},\"columnKind\":\"utf16CodeUnits\",\"results\":[");
+	}
+
+	@Override
+	public void write(String pFile, Issue pIssue) throws IOException {
+		writer.write(firstResult ? "\n{\"ruleId\":" : ",\n{\"ruleId\":");
+		firstResult = false;
+
+		JsonStrings.write(writer, pIssue.getRuleKey());
+		writer.write(",\"level\":\"warning\",\"message\":{\"text\":");
+		JsonStrings.write(writer, pIssue.getMessage());
+		writer.write("},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+		JsonStrings.write(writer, toUri(pFile));
+		writer.write('}');
+		if (pIssue.getLine() > 0) {
+			writer.write(",\"region\":{\"startLine\":" + pIssue.getLine() + ",\"startColumn\":" + pIssue.getColumn()
+					+ ",\"endLine\":" + pIssue.getEndLine() + ",\"endColumn\":" + pIssue.getEndColumn() + "}");
+		}
+		writer.write("}}]}");
+	}
+
+	@Override
+	public void finish() throws IOException {
+		writer.write("\n]}]}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Converts a path to a URI reference with forward slashes, relative if
+	 * the path is.
+	 */
+	private static String toUri(String pFile) {
+		final File file = new File(pFile);
+		return file.isAbsolute() ? file.toURI().toString() : pFile.replace(File.separatorChar, '/');
+	}
+}
@@ -0,0 +1,151 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Loads the source text of a file for the standalone runner. The bytes of the
+ * file are decoded straight into the string that is parsed and scanned by the
+ * checks: the checks read the text through
+ * {@link org.sonar.plugins.java.api.JavaFileScannerContext#getFileContent()},
+ * which returns this very string, and never join the lines of the file.
+ * <p>
+ * Large files are memory-mapped instead of being copied into the heap first.
+ * Small files are read directly into an array of their size; mapping them
+ * would cost more than copying, and a sweep over a whole checkout would
+ * otherwise hold tens of thousands of mappings until they are collected.
+ * <p>
+ * Most sources are pure ASCII. If the charset encodes ASCII as single bytes,
+ * such a file is not decoded at all: its bytes are taken as Latin-1, which the
+ * JVM stores as they are in a compact string.
+ */
+public final class SourceLoader {
+
+	/** Size in bytes from which files are memory-mapped. */
+	static final int MAPPING_THRESHOLD = 256 * 1024;
+
+	private static final Set<Charset> ASCII_COMPATIBLE_CHARSETS = Set.of(StandardCharsets.US_ASCII,
+			StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8);
+
+	private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+	private SourceLoader() {
+	}
+
+	/**
+	 * Loads the source text of a file.
+	 *
+	 * @param pFile
+	 *            the file.
+	 * @param pCharset
+	 *            the encoding of the file. Malformed input is replaced, as
+	 *            with {@link String#String(byte[], Charset)}; a UTF-8 byte
+	 *            order mark is skipped.
+	 * @return the source text.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	public static String load(Path pFile, Charset pCharset) throws IOException {
+		try (FileChannel channel = FileChannel.open(pFile, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to analyze: " + pFile);
+			}
+
+			final ByteBuffer buffer = size >= MAPPING_THRESHOLD ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+					: read(channel, (int) size);
+			return decode(buffer, pCharset);
+		}
+	}
+
+	private static ByteBuffer read(FileChannel pChannel, int pSize) throws IOException {
+		final ByteBuffer result = ByteBuffer.wrap(new byte[pSize]);
+		int read = 0;
+		while (result.hasRemaining() && read >= 0) {
+			read = pChannel.read(result);
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Decodes the remaining bytes of a buffer.
+	 *
+	 * @param pBuffer
+	 *            the buffer.
+	 * @param pCharset
+	 *            the encoding of the bytes.
+	 * @return the text.
+	 */
+	static String decode(ByteBuffer pBuffer, Charset pCharset) {
+		final String result;
+
+		if (StandardCharsets.UTF_8.equals(pCharset)) {
+			skipByteOrderMark(pBuffer);
+		}
+
+		if (isAsciiCompatible(pCharset) && isAscii(pBuffer)) {
+			if (pBuffer.hasArray()) {
+				result = new String(pBuffer.array(), pBuffer.arrayOffset() + pBuffer.position(), pBuffer.remaining(),
+						StandardCharsets.ISO_8859_1);
+
+			} else {
+				final byte[] bytes = new byte[pBuffer.remaining()];
+				pBuffer.get(bytes);
+				result = new String(bytes, StandardCharsets.ISO_8859_1);
+			}
+
+		} else {
+			result = pCharset.decode(pBuffer).toString();
+		}
+
+		return result;
+	}
+
+	private static void skipByteOrderMark(ByteBuffer pBuffer) {
+		final int position = pBuffer.position();
+		if (pBuffer.remaining() >= 3 && pBuffer.get(position) == (byte) 0xEF
+				&& pBuffer.get(position + 1) == (byte) 0xBB && pBuffer.get(position + 2) == (byte) 0xBF) {
+			pBuffer.position(position + 3);
+		}
+	}
+
+	/**
+	 * Checks if a charset encodes the ASCII characters as the same single
+	 * bytes, like the ISO-8859 and Windows code pages do.
+	 */
+	private static boolean isAsciiCompatible(Charset pCharset) {
+		final String name = pCharset.name().toUpperCase(Locale.ROOT);
+		return ASCII_COMPATIBLE_CHARSETS.contains(pCharset) || name.startsWith("ISO-8859-")
+				|| name.startsWith("WINDOWS-125");
+	}
+
+	/**
+	 * Checks if the remaining bytes of a buffer are all ASCII, eight bytes at
+	 * a time.
+	 */
+	private static boolean isAscii(ByteBuffer pBuffer) {
+		final int end = pBuffer.limit();
+		int i = pBuffer.position();
+
+		for (; i + Long.BYTES <= end; i += Long.BYTES) {
+			if ((pBuffer.getLong(i) & NON_ASCII_MASK) != 0) {
+				return false;
+			}
+		}
+		for (; i < end; i++) {
+			if (pBuffer.get(i) < 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,493 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.SubscriptionVisitor;
+
+import de.johannes.sonarqube.checkstyle.rules.plugin.RulesList;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.IssueWriter.Format;
+
+/**
+ * Runs the rules of {@link RulesList#getJavaChecks()} on Java files without a
+ * SonarQube scanner, e.g. in a pre-commit hook. The issues are written as
+ * <code>path:line:column: message [rule]</code>, as JSON Lines or as a SARIF
+ * log, ordered by file and position. An issue is located on the token whose
+ * whitespace violates the rule.
+ * <p>
+ * The runner is not part of the plugin. The build packages it with the rules
+ * and the sonar-java frontend as an executable jar:
+ * <code>java -jar target/sonarqube_checkstyle_rules-&lt;version&gt;-runner.jar src/main/java</code>.
+ *
+ * <pre>
+ * StandaloneRunner [options] &lt;file or directory&gt;...
+ *   --rules &lt;rule,...&gt;               run only these rules
+ *   --property &lt;rule&gt;.&lt;key&gt;=&lt;value&gt;  set a rule property, may be repeated
+ *   --properties &lt;file&gt;             read rule properties from a properties file
+ *   --encoding &lt;charset&gt;            encoding of the files, UTF-8 by default
+ *   --threads &lt;count&gt;               analyze files in parallel, 0 for one thread
+ *                                   per processor, 1 by default
+ *   --format text|jsonl|sarif       format of the issues, text by default
+ *   --output &lt;file&gt;                 write the issues to a file instead of
+ *                                   the standard output, in UTF-8
+ * </pre>
+ *
+ * In parallel, the files are fanned out over a work-stealing pool whose
+ * workers each own an instance of every rule, as the rules keep per-file
+ * state. The issues are still written in the order of the files.
+ * <p>
+ * The issues of a file are buffered until the file is analyzed, so they can
+ * be ordered by position. They are written as soon as the file and all files
+ * before it are analyzed, and then dropped. Only a few files per thread are
+ * analyzed ahead, so the memory needed grows with the issues of those files,
+ * not with the number of files or with all issues.
+ * <p>
+ * The exit code is {@value #EXIT_CLEAN} without issues,
+ * {@value #EXIT_VIOLATIONS} with issues and {@value #EXIT_ERROR} if the
+ * arguments are invalid or a file could not be analyzed.
+ */
+public final class StandaloneRunner {
+
+	/** Exit code if no issue was found. */
+	public static final int EXIT_CLEAN = 0;
+	/** Exit code if issues were found. */
+	public static final int EXIT_VIOLATIONS = 1;
+	/** Exit code if the arguments are invalid or a file could not be analyzed. */
+	public static final int EXIT_ERROR = 2;
+
+	private static final String USAGE = "Usage: StandaloneRunner [--rules <rule,...>] [--property <rule>.<key>=<value>]..."
+			+ " [--properties <file>] [--encoding <charset>] [--threads <count>] [--format text|jsonl|sarif]"
+			+ " [--output <file>] <file or directory>...";
+
+	/** Number of files analyzed ahead per thread. */
+	private static final int FILES_AHEAD_PER_THREAD = 4;
+
+	private static final Comparator<Issue> ISSUE_ORDER = Comparator.comparingInt(Issue::getLine)
+			.thenComparingInt(Issue::getColumn)
+			.thenComparing(Issue::getRuleKey);
+
+	/** Instances of the rules confined to the thread analyzing a file. */
+	private final ThreadLocal<List<SubscriptionVisitor>> checks;
+	private final List<Path> files;
+	private final Charset charset;
+	private final int threads;
+	private final Format format;
+	/** The file to write the issues to, <code>null</code> for the standard output. */
+	private final Path output;
+
+	private StandaloneRunner(Supplier<List<SubscriptionVisitor>> pChecksFactory, List<Path> pFiles,
+			Charset pCharset, int pThreads, Format pFormat, Path pOutput) {
+		checks = ThreadLocal.withInitial(pChecksFactory);
+		files = pFiles;
+		charset = pCharset;
+		threads = pThreads;
+		format = pFormat;
+		output = pOutput;
+	}
+
+	public static void main(String[] pArgs) {
+		System.exit(run(pArgs, System.out, System.err));
+	}
+
+	/**
+	 * Runs the rules as given by command line arguments.
+	 *
+	 * @param pArgs
+	 *            the arguments.
+	 * @param pOut
+	 *            the stream the issues are written to, unless they are
+	 *            written to a file.
+	 * @param pErr
+	 *            the stream errors and the summary are printed to.
+	 * @return the exit code.
+	 */
+	public static int run(String[] pArgs, PrintStream pOut, PrintStream pErr) {
+		int result = EXIT_ERROR;
+
+		try {
+			result = of(pArgs).analyze(pOut, pErr);
+		} catch (IllegalArgumentException | IOException e) {
+			pErr.println(e.getMessage());
+			pErr.println(USAGE);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Creates a runner from command line arguments.
+	 *
+	 * @param pArgs
+	 *            the arguments.
+	 * @return the runner.
+	 * @throws IllegalArgumentException
+	 *             if the arguments are invalid.
+	 * @throws IOException
+	 *             if a properties file or a directory cannot be read.
+	 */
+	static StandaloneRunner of(String[] pArgs) throws IOException {
+		final Map<String, Map<String, String>> properties = new LinkedHashMap<>();
+		final List<Path> paths = new ArrayList<>();
+		Set<String> ruleKeys = null;
+		Charset charset = StandardCharsets.UTF_8;
+		int threads = 1;
+		Format format = Format.TEXT;
+		Path output = null;
+
+		for (int i = 0; i < pArgs.length; i++) {
+			switch (pArgs[i]) {
+			case "--rules":
+				ruleKeys = new HashSet<>(Arrays.asList(requireValue(pArgs, ++i).split(",")));
+				break;
+			case "--property":
+				addProperty(properties, requireValue(pArgs, ++i));
+				break;
+			case "--properties":
+				readProperties(properties, Paths.get(requireValue(pArgs, ++i)));
+				break;
+			case "--encoding":
+				charset = Charset.forName(requireValue(pArgs, ++i));
+				break;
+			case "--threads":
+				threads = parseThreads(requireValue(pArgs, ++i));
+				break;
+			case "--format":
+				format = Format.of(requireValue(pArgs, ++i));
+				break;
+			case "--output":
+				output = Paths.get(requireValue(pArgs, ++i));
+				break;
+			default:
+				if (pArgs[i].startsWith("--")) {
+					throw new IllegalArgumentException("Unknown option " + pArgs[i]);
+				}
+				paths.add(Paths.get(pArgs[i]));
+				break;
+			}
+		}
+		if (paths.isEmpty()) {
+			throw new IllegalArgumentException("No file or directory given");
+		}
+
+		// fail on unknown rules and properties before any file is analyzed
+		final Set<String> selectedRuleKeys = ruleKeys;
+		createChecks(selectedRuleKeys, properties);
+
+		return new StandaloneRunner(() -> createChecks(selectedRuleKeys, properties), collectJavaFiles(paths),
+				charset, threads, format, output);
+	}
+
+	private static int parseThreads(String pThreads) {
+		final int result;
+		try {
+			result = Integer.parseInt(pThreads);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Number of threads must be a number: " + pThreads, e);
+		}
+		if (result < 0) {
+			throw new IllegalArgumentException("Number of threads must not be negative: " + pThreads);
+		}
+		return result == 0 ? Runtime.getRuntime().availableProcessors() : result;
+	}
+
+	private static String requireValue(String[] pArgs, int pIndex) {
+		if (pIndex >= pArgs.length) {
+			throw new IllegalArgumentException("Missing value of option " + pArgs[pIndex - 1]);
+		}
+		return pArgs[pIndex];
+	}
+
+	private static void addProperty(Map<String, Map<String, String>> pProperties, String pProperty) {
+		final int separator = pProperty.indexOf('=');
+		final int dot = separator < 0 ? -1 : pProperty.lastIndexOf('.', separator);
+		if (dot <= 0) {
+			throw new IllegalArgumentException("Rule property must be given as <rule>.<key>=<value>: " + pProperty);
+		}
+
+		pProperties.computeIfAbsent(pProperty.substring(0, dot), ruleKey -> new LinkedHashMap<>())
+				.put(pProperty.substring(dot + 1, separator), pProperty.substring(separator + 1));
+	}
+
+	private static void readProperties(Map<String, Map<String, String>> pProperties, Path pFile) throws IOException {
+		final Properties fileProperties = new Properties();
+		try (Reader reader = Files.newBufferedReader(pFile, StandardCharsets.UTF_8)) {
+			fileProperties.load(reader);
+		}
+
+		for (final String name : new TreeSet<>(fileProperties.stringPropertyNames())) {
+			addProperty(pProperties, name + "=" + fileProperties.getProperty(name));
+		}
+	}
+
+	/**
+	 * Creates an instance of each selected rule and sets its rule properties.
+	 */
+	private static List<SubscriptionVisitor> createChecks(Set<String> pRuleKeys,
+			Map<String, Map<String, String>> pProperties) {
+		final Set<String> unknownRuleKeys = new TreeSet<>(pProperties.keySet());
+		if (pRuleKeys != null) {
+			unknownRuleKeys.addAll(pRuleKeys);
+		}
+
+		final List<SubscriptionVisitor> result = new ArrayList<>();
+		for (final Class<? extends JavaCheck> checkClass : RulesList.getJavaChecks()) {
+			final String ruleKey = CheckRunner.getRuleKey(checkClass);
+			unknownRuleKeys.remove(ruleKey);
+
+			if (pRuleKeys == null || pRuleKeys.contains(ruleKey)) {
+				final SubscriptionVisitor check = instantiate(checkClass);
+				RuleProperties.apply(check, pProperties.getOrDefault(ruleKey, Map.of()));
+				result.add(check);
+			}
+		}
+
+		if (!unknownRuleKeys.isEmpty()) {
+			throw new IllegalArgumentException("Unknown rules " + unknownRuleKeys);
+		}
+		return result;
+	}
+
+	private static SubscriptionVisitor instantiate(Class<? extends JavaCheck> pCheckClass) {
+		try {
+			return (SubscriptionVisitor) pCheckClass.getConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Unable to create rule " + pCheckClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Collects the given files and the Java files of the given directories, in
+	 * the order of their paths.
+	 */
+	private static List<Path> collectJavaFiles(List<Path> pPaths) throws IOException {
+		final Set<Path> result = new TreeSet<>();
+
+		for (final Path path : pPaths) {
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> directoryFiles = Files.walk(path)) {
+					result.addAll(directoryFiles.filter(file -> file.toString().endsWith(".java"))
+							.filter(Files::isRegularFile).collect(Collectors.toList()));
+				}
+
+			} else if (Files.isRegularFile(path)) {
+				result.add(path);
+
+			} else {
+				throw new IllegalArgumentException("No such file or directory " + path);
+			}
+		}
+
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Analyzes the files and writes their issues. Each thread reuses its
+	 * instances of the rules for all files it analyzes.
+	 *
+	 * @return the exit code.
+	 */
+	int analyze(PrintStream pOut, PrintStream pErr) {
+		final long start = System.nanoTime();
+		int issueCount = 0;
+		int failedFiles = 0;
+
+		try (Writer writer = openOutput(pOut)) {
+			final IssueWriter issueWriter = format.create(writer, getRuleKeys());
+			for (final FileResult fileResult : analyzeFiles()) {
+				if (fileResult.failure == null) {
+					final String file = fileResult.file.toString();
+					for (final Issue issue : fileResult.issues) {
+						issueWriter.write(file, issue);
+					}
+					issueCount += fileResult.issues.size();
+
+				} else {
+					pErr.println(fileResult.file + ": analysis failed: " + fileResult.failure);
+					failedFiles++;
+				}
+			}
+			issueWriter.finish();
+
+		} catch (IOException e) {
+			pErr.println("Unable to write issues: " + e.getMessage());
+			return EXIT_ERROR;
+		}
+
+		pErr.println(String.format("%d issues in %d files (%d failed) in %d ms", issueCount, files.size(),
+				failedFiles, (System.nanoTime() - start) / 1_000_000));
+
+		int result = EXIT_CLEAN;
+		if (failedFiles > 0) {
+			result = EXIT_ERROR;
+
+		} else if (issueCount > 0) {
+			result = EXIT_VIOLATIONS;
+		}
+		return result;
+	}
+
+	/**
+	 * Opens the writer of the issues. The standard output is only flushed, not
+	 * closed, when the writer is closed.
+	 */
+	private Writer openOutput(PrintStream pOut) throws IOException {
+		final Writer result;
+		if (output == null) {
+			result = new BufferedWriter(new OutputStreamWriter(pOut, StandardCharsets.UTF_8)) {
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+		} else {
+			result = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+		}
+		return result;
+	}
+
+	private List<String> getRuleKeys() {
+		final List<String> result = new ArrayList<>();
+		for (final SubscriptionVisitor check : checks.get()) {
+			result.add(CheckRunner.getRuleKey(check.getClass()));
+		}
+		return result;
+	}
+
+	/**
+	 * Analyzes the files, in parallel if more than one thread is used.
+	 *
+	 * @return the results in the order of the files. The results are computed
+	 *         while they are iterated; in parallel, at most
+	 *         {@value #FILES_AHEAD_PER_THREAD} files per thread are analyzed
+	 *         ahead of the iteration.
+	 */
+	private Iterable<FileResult> analyzeFiles() {
+		final Iterable<FileResult> result;
+
+		if (threads <= 1) {
+			result = () -> files.stream().map(this::analyzeFile).iterator();
+
+		} else {
+			result = () -> new ParallelAnalysis(new ForkJoinPool(threads), threads * FILES_AHEAD_PER_THREAD);
+		}
+
+		return result;
+	}
+
+	private FileResult analyzeFile(Path pFile) {
+		FileResult result;
+		try {
+			result = new FileResult(pFile, analyze(pFile), null);
+		} catch (IOException | RuntimeException e) {
+			result = new FileResult(pFile, null, e);
+		}
+		return result;
+	}
+
+	/**
+	 * Analyzes a file with all rules.
+	 *
+	 * @param pFile
+	 *            the file.
+	 * @return the issues, ordered by their position.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	List<Issue> analyze(Path pFile) throws IOException {
+		final String source = SourceLoader.load(pFile, charset);
+		final List<Issue> issues = CheckRunner.scan(checks.get(), CheckRunner.parse(pFile.toString(), source), null);
+		issues.sort(ISSUE_ORDER);
+		return issues;
+	}
+
+	/**
+	 * Iterates the results of the files while they are analyzed in a pool. A
+	 * file is submitted to the pool whenever the result of an earlier one is
+	 * taken, so that only a window of files is analyzed ahead and their
+	 * results are held in memory. The pool is shut down after the last file
+	 * is submitted.
+	 */
+	private final class ParallelAnalysis implements Iterator<FileResult> {
+		private final ForkJoinPool pool;
+		private final Iterator<Path> unsubmittedFiles = files.iterator();
+		private final Deque<ForkJoinTask<FileResult>> tasks = new ArrayDeque<>();
+
+		ParallelAnalysis(ForkJoinPool pPool, int pWindow) {
+			pool = pPool;
+			for (int i = 0; i < pWindow && unsubmittedFiles.hasNext(); i++) {
+				submitNext();
+			}
+			shutDownIfSubmitted();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !tasks.isEmpty();
+		}
+
+		@Override
+		public FileResult next() {
+			final FileResult result = tasks.removeFirst().join();
+			if (unsubmittedFiles.hasNext()) {
+				submitNext();
+				shutDownIfSubmitted();
+			}
+			return result;
+		}
+
+		private void submitNext() {
+			final Path file = unsubmittedFiles.next();
+			tasks.addLast(pool.submit(() -> analyzeFile(file)));
+		}
+
+		private void shutDownIfSubmitted() {
+			if (!unsubmittedFiles.hasNext()) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * The issues of a file or the failure analyzing it.
+	 */
+	private static final class FileResult {
+		private final Path file;
+		private final List<Issue> issues;
+		private final Exception failure;
+
+		FileResult(Path pFile, List<Issue> pIssues, Exception pFailure) {
+			file = pFile;
+			issues = pIssues;
+			failure = pFailure;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+
+/**
+ * Writes one line per issue: <code>path:line:column: message [rule]</code>.
+ * Lines end with <code>\n</code> on every platform, like the other formats.
+ */
+final class TextIssueWriter implements IssueWriter {
+
+	private final Writer writer;
+
+	TextIssueWriter(Writer pWriter) {
+		writer = pWriter;
+	}
+
+	@Override
+	public void write(String pFile, Issue pIssue) throws IOException {
+		writer.append(pFile).append(':').append(Integer.toString(pIssue.getLine())).append(':')
+				.append(Integer.toString(pIssue.getColumn())).append(": ").append(pIssue.getMessage()).append(" [")
+				.append(pIssue.getRuleKey()).append("]\n");
+	}
+
+	@Override
+	public void finish() throws IOException {
+		writer.flush();
+	}
+}
@@ -0,0 +1,82 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.IssueWriter.Format;
+
+/**
+ * Tests the {@link IssueWriter}s.
+ */
+public class TestIssueWriters {
+
+	private static final List<String> RULE_KEYS = List.of("NoWhitespaceAfterCheck", "NoWhitespaceBeforeCheck");
+
+	private static final Issue ISSUE = new Issue(new NoWhitespaceBeforeCheck(), 2, 10, 2, 15,
+			"'.' is preceded by whitespace.");
+	private static final Issue ESCAPED_ISSUE = new Issue(new NoWhitespaceAfterCheck(), 3, 1, 4, 2,
+			"a \"quoted\" \\ and\ttab");
+	private static final Issue FILE_ISSUE = new Issue(new NoWhitespaceAfterCheck(), 0, 0, 0, 0, "on file");
+
+	private final StringWriter output = new StringWriter();
+
+	@Test
+	void testText() throws IOException {
+		write(Format.TEXT, ISSUE);
+
+		assertThat(output.toString()).isEqualTo(
+				"src/A.java:2:10: '.' is preceded by whitespace. [NoWhitespaceBeforeCheck]\n");
+	}
+
+	@Test
+	void testJsonLines() throws IOException {
+		write(Format.JSONL, ISSUE, ESCAPED_ISSUE);
+
+		assertThat(output.toString()).isEqualTo("{\"rule\":\"NoWhitespaceBeforeCheck\",\"file\":\"src/A.java\","
+				+ "\"startLine\":2,\"startColumn\":10,\"endLine\":2,\"endColumn\":15,"
+				+ "\"message\":\"'.' is preceded by whitespace.\"}\n"
+				+ "{\"rule\":\"NoWhitespaceAfterCheck\",\"file\":\"src/A.java\","
+				+ "\"startLine\":3,\"startColumn\":1,\"endLine\":4,\"endColumn\":2,"
+				+ "\"message\":\"a \\\"quoted\\\" \\\\ and\\u0009tab\"}\n");
+	}
+
+	@Test
+	void testSarif() throws IOException {
+		write(Format.SARIF, ISSUE, FILE_ISSUE);
+
+		assertThat(output.toString()).isEqualTo("{\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\","
+				+ "\"version\":\"2.1.0\",\"runs\":[{\"tool\":{\"driver\":{\"name\":\"johannes-checkstyle-rules\","
+				+ "\"rules\":[{\"id\":\"NoWhitespaceAfterCheck\"},{\"id\":\"NoWhitespaceBeforeCheck\"}]}},"
+				+ "\"columnKind\":\"utf16CodeUnits\",\"results\":[\n"
+				+ "{\"ruleId\":\"NoWhitespaceBeforeCheck\",\"level\":\"warning\","
+				+ "\"message\":{\"text\":\"'.' is preceded by whitespace.\"},"
+				+ "\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":\"src/A.java\"},"
+				+ "\"region\":{\"startLine\":2,\"startColumn\":10,\"endLine\":2,\"endColumn\":15}}}]},\n"
+				+ "{\"ruleId\":\"NoWhitespaceAfterCheck\",\"level\":\"warning\",\"message\":{\"text\":\"on file\"},"
+				+ "\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":\"src/A.java\"}}}]}\n"
+				+ "]}]}\n");
+	}
+
+	@Test
+	void testSarifWithoutIssues() throws IOException {
+		write(Format.SARIF);
+
+		assertThat(output.toString()).endsWith("\"results\":[\n]}]}\n");
+	}
+
+	private void write(Format pFormat, Issue... pIssues) throws IOException {
+		final IssueWriter issueWriter = pFormat.create(output, RULE_KEYS);
+		for (final Issue issue : pIssues) {
+			issueWriter.write("src/A.java", issue);
+		}
+		issueWriter.finish();
+	}
+}
@@ -0,0 +1,62 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+
+/**
+ * Tests {@link RuleProperties}.
+ */
+public class TestRuleProperties {
+
+	@Test
+	void testRuleKey() {
+		assertThat(CheckRunner.getRuleKey(NoWhitespaceAfterCheck.class)).isEqualTo("NoWhitespaceAfterCheck");
+		assertThat(CheckRunner.getRuleKey(new NoWhitespaceBeforeCheck() {
+		}.getClass())).isEqualTo("NoWhitespaceBeforeCheck");
+		assertThat(CheckRunner.getRuleKey(NoWhitespaceCheck.class)).isEqualTo("NoWhitespaceCheck");
+	}
+
+	@Test
+	void testApply() throws ReflectiveOperationException {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+
+		RuleProperties.apply(noWhitespaceBeforeCheck,
+				Map.of("dot", "false", "allowLineBreaks", "FALSE", "maxFileLines", " 42", "generatedCodeMarkers", "x"));
+
+		assertThat(readField(NoWhitespaceBeforeCheck.class, noWhitespaceBeforeCheck, "dotDefault")).isEqualTo(false);
+		assertThat(readField(NoWhitespaceCheck.class, noWhitespaceBeforeCheck, "allowLineBreaks")).isEqualTo(false);
+		assertThat(readField(NoWhitespaceCheck.class, noWhitespaceBeforeCheck, "maxFileLines")).isEqualTo(42);
+		assertThat(readField(NoWhitespaceCheck.class, noWhitespaceBeforeCheck, "generatedCodeMarkers"))
+				.isEqualTo("x");
+	}
+
+	@Test
+	void testInvalidProperties() {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+
+		assertThatThrownBy(() -> RuleProperties.set(noWhitespaceBeforeCheck, "unknown", "true"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Unknown rule property unknown of NoWhitespaceBeforeCheck");
+		assertThatThrownBy(() -> RuleProperties.set(noWhitespaceBeforeCheck, "dot", "yes"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Rule property dot must be true or false: yes");
+		assertThatThrownBy(() -> RuleProperties.set(noWhitespaceBeforeCheck, "maxFileLines", "many"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Rule property maxFileLines must be a number: many");
+	}
+
+	private static Object readField(Class<?> pClass, Object pObject, String pName)
+			throws ReflectiveOperationException {
+		final java.lang.reflect.Field field = pClass.getDeclaredField(pName);
+		field.setAccessible(true);
+		return field.get(pObject);
+	}
+}
@@ -0,0 +1,78 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests {@link SourceLoader}.
+ */
+public class TestSourceLoader {
+
+	private static final String ASCII_SOURCE = "class A {\r\n\tint a = b.c;\n}\n";
+	private static final String NON_ASCII_SOURCE = "class \u00c4 {\n\tString s = \"\u00df\u20ac\";\n}\n";
+
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest(name = "charset: {arguments}")
+	@ValueSource(strings = { "UTF-8", "US-ASCII", "ISO-8859-1", "windows-1252", "UTF-16" })
+	void testAsciiSource(String pCharset) throws IOException {
+		verifyLoad(ASCII_SOURCE, Charset.forName(pCharset));
+	}
+
+	@ParameterizedTest(name = "charset: {arguments}")
+	@ValueSource(strings = { "UTF-8", "windows-1252", "UTF-16" })
+	void testNonAsciiSource(String pCharset) throws IOException {
+		verifyLoad(NON_ASCII_SOURCE, Charset.forName(pCharset));
+	}
+
+	@ParameterizedTest(name = "non-ASCII: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testMappedSource(boolean pNonAscii) throws IOException {
+		final StringBuilder source = new StringBuilder();
+		while (source.length() < SourceLoader.MAPPING_THRESHOLD) {
+			source.append(ASCII_SOURCE);
+		}
+		source.append(pNonAscii ? NON_ASCII_SOURCE : ASCII_SOURCE);
+
+		verifyLoad(source.toString(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void testByteOrderMark() throws IOException {
+		final Path file = directory.resolve("A.java");
+		Files.write(file, ("\ufeff" + ASCII_SOURCE).getBytes(StandardCharsets.UTF_8));
+
+		assertThat(SourceLoader.load(file, StandardCharsets.UTF_8)).isEqualTo(ASCII_SOURCE);
+	}
+
+	@Test
+	void testMalformedInputIsReplaced() throws IOException {
+		final Path file = directory.resolve("A.java");
+		Files.write(file, new byte[] { 'a', (byte) 0xC3, 'b' });
+
+		assertThat(SourceLoader.load(file, StandardCharsets.UTF_8)).isEqualTo("a\ufffdb");
+	}
+
+	@Test
+	void testEmptyFile() throws IOException {
+		verifyLoad("", StandardCharsets.UTF_8);
+	}
+
+	private void verifyLoad(String pSource, Charset pCharset) throws IOException {
+		final Path file = directory.resolve("A.java");
+		Files.write(file, pSource.getBytes(pCharset));
+
+		assertThat(SourceLoader.load(file, pCharset)).isEqualTo(pSource);
+	}
+}
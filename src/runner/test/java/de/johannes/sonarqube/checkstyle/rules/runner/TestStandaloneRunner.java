@@ -0,0 +1,178 @@
+package de.johannes.sonarqube.checkstyle.rules.runner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+
+/**
+ * Tests {@link StandaloneRunner}.
+ */
+public class TestStandaloneRunner {
+
+	private static final String VIOLATING_SOURCE = "class A {\n\tint a = b . c ;\n}\n";
+	private static final String CLEAN_SOURCE = "class B {\n\tint b = c.d;\n}\n";
+	private static final long SEED = 20221017L;
+
+	private static final int FILES = 300;
+	private static final int WARM_UP_RUNS = 5;
+	private static final int RUNS = 3;
+	private static final long MAX_MILLIS = Long.parseLong(System.getProperty("standaloneRunner.maxMillis", "1000"));
+
+	@TempDir
+	Path directory;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+	private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		Files.writeString(directory.resolve("A.java"), VIOLATING_SOURCE);
+		Files.createDirectories(directory.resolve("sub"));
+		Files.writeString(directory.resolve("sub").resolve("B.java"), CLEAN_SOURCE);
+		Files.writeString(directory.resolve("sub").resolve("README.txt"), "not analyzed");
+	}
+
+	@Test
+	void testViolations() {
+		assertThat(run(directory.toString())).isEqualTo(StandaloneRunner.EXIT_VIOLATIONS);
+
+		final String file = directory.resolve("A.java").toString();
+		assertThat(outLines()).containsExactly(
+				file + ":2:12: '.' is followed by whitespace. [NoWhitespaceAfterCheck]",
+				file + ":2:12: '.' is preceded by whitespace. [NoWhitespaceBeforeCheck]",
+				file + ":2:16: ';' is preceded by whitespace. [NoWhitespaceBeforeCheck]");
+		assertThat(err.toString(StandardCharsets.UTF_8)).startsWith("3 issues in 2 files (0 failed)");
+	}
+
+	@Test
+	void testRulesAndProperties() throws IOException {
+		final Path properties = directory.resolve("rules.properties");
+		Files.writeString(properties, "NoWhitespaceBeforeCheck.semicolon=false\n");
+
+		assertThat(run("--rules", "NoWhitespaceBeforeCheck", "--property", "NoWhitespaceBeforeCheck.dot=false",
+				"--properties", properties.toString(), directory.toString())).isEqualTo(StandaloneRunner.EXIT_CLEAN);
+		assertThat(outLines()).isEmpty();
+	}
+
+	@Test
+	void testCleanFile() {
+		assertThat(run(directory.resolve("sub").resolve("B.java").toString())).isEqualTo(StandaloneRunner.EXIT_CLEAN);
+		assertThat(outLines()).isEmpty();
+	}
+
+	@ParameterizedTest(name = "threads: {arguments}")
+	@ValueSource(strings = { "2", "4", "0" })
+	void testParallelOutputIsOrdered(String pThreads) throws IOException {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(SEED);
+		for (int i = 0; i < 24; i++) {
+			generator.setWhitespaceRatio(i % 4 * 0.1);
+			Files.writeString(directory.resolve("Generated" + i + ".java"), generator.generate("Generated" + i, 100));
+		}
+
+		final int sequentialExitCode = run(directory.toString());
+		final String sequentialOutput = out.toString(StandardCharsets.UTF_8);
+		out.reset();
+
+		assertThat(run("--threads", pThreads, directory.toString())).isEqualTo(sequentialExitCode);
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(sequentialOutput);
+	}
+
+	/**
+	 * A few hundred files of a typical size are analyzed in less than a second
+	 * once the JVM is warmed up, e.g. in a pre-commit hook of a daemon. The
+	 * median of a few runs is measured, as a single run is easily slowed down
+	 * by the garbage collector or other processes. The limit is set with the
+	 * system property <code>standaloneRunner.maxMillis</code>.
+	 */
+	@Test
+	void testFewHundredFilesInASecond() throws IOException {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(SEED);
+		for (int i = 0; i < FILES; i++) {
+			generator.setWhitespaceRatio(i % 4 * 0.1);
+			Files.writeString(directory.resolve("Generated" + i + ".java"), generator.generate("Generated" + i, 100));
+		}
+
+		for (int i = 0; i < WARM_UP_RUNS; i++) {
+			run("--threads", "0", directory.toString());
+			out.reset();
+		}
+
+		final long[] millis = new long[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			final long start = System.nanoTime();
+			run("--threads", "0", directory.toString());
+			millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			out.reset();
+		}
+		Arrays.sort(millis);
+
+		assertThat(millis[RUNS / 2]).as("median milliseconds for %d files", FILES).isLessThan(MAX_MILLIS);
+	}
+
+	@Test
+	void testJsonLinesOutputFile() throws IOException {
+		final Path output = directory.resolve("issues.jsonl");
+
+		assertThat(run("--format", "jsonl", "--output", output.toString(), directory.toString()))
+				.isEqualTo(StandaloneRunner.EXIT_VIOLATIONS);
+		assertThat(outLines()).isEmpty();
+		assertThat(Files.readAllLines(output, StandardCharsets.UTF_8)).hasSize(3)
+				.allSatisfy(line -> assertThat(line).startsWith("{\"rule\":\"NoWhitespace").endsWith("}"))
+				.last().asString().contains("\"startLine\":2,\"startColumn\":16,\"endLine\":2,\"endColumn\":17,");
+	}
+
+	@Test
+	void testSarifOutput() {
+		assertThat(run("--format", "SARIF", "--threads", "2", directory.toString()))
+				.isEqualTo(StandaloneRunner.EXIT_VIOLATIONS);
+		assertThat(out.toString(StandardCharsets.UTF_8)).startsWith("{\"$schema\"")
+				.contains("\"region\":{\"startLine\":2,\"startColumn\":12,\"endLine\":2,\"endColumn\":13}")
+				.endsWith("]}]}\n");
+	}
+
+	@Test
+	void testInvalidArguments() {
+		assertThat(run()).isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(run("--rules", "Unknown", directory.toString())).isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(run("--property", "NoWhitespaceBeforeCheck.unknown=true", directory.toString()))
+				.isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(run(directory.resolve("Missing.java").toString())).isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(run("--threads", "-1", directory.toString())).isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(run("--format", "xml", directory.toString())).isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(err.toString(StandardCharsets.UTF_8)).contains("Usage: StandaloneRunner");
+	}
+
+	@Test
+	void testUnparsableFile() throws IOException {
+		Files.writeString(directory.resolve("C.java"), "class C {");
+
+		assertThat(run(directory.toString())).isEqualTo(StandaloneRunner.EXIT_ERROR);
+		assertThat(err.toString(StandardCharsets.UTF_8)).contains("C.java: analysis failed");
+	}
+
+	private int run(String... pArgs) {
+		return StandaloneRunner.run(pArgs, new PrintStream(out, true, StandardCharsets.UTF_8),
+				new PrintStream(err, true, StandardCharsets.UTF_8));
+	}
+
+	private List<String> outLines() {
+		final String output = out.toString(StandardCharsets.UTF_8);
+		return output.isEmpty() ? List.of() : Arrays.asList(output.split("\\R"));
+	}
+}
@@ -0,0 +1,32 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace.testfiles;
+
+/**
+ * Test file for the sealed types and records of {@code NoWhitespaceBeforeCheck}.
+ */
+//@formatter:off
+public class NoWhitespaceBeforeCheck_SealedAndRecords_TestFile {
+
+	/**
+	 * COMMA
+	 * permits
+	 */
+	// Compliant@+1
+	sealed interface Shape1 permits Circle, Square {}
+
+	// Noncompliant@+1 {{',' is preceded by whitespace.}}
+	sealed interface Shape2 permits Circle , Square {}
+
+	final class Circle implements Shape1, Shape2 {}
+
+	final class Square implements Shape1, Shape2 {}
+
+	/**
+	 * COMMA
+	 * record components
+	 */
+	// Compliant@+1
+	record Point1(int x, int y) {}
+
+	// Noncompliant@+1 {{',' is preceded by whitespace.}}
+	record Point2(int x , int y) {}
+}
@@ -0,0 +1,45 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace.testfiles;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Test file for the parity tests with C-style array declarators and several
+ * declarators sharing a type, whose tokens sonar-java does not visit in source
+ * order.
+ */
+//@formatter:off
+public class NoWhitespaceCheck_Declarators_TestFile {
+
+	@Target(ElementType.TYPE_USE)
+	@interface A {}
+
+	int a[], b;
+	int c [] = { 1, 2 }, d[][] = {{ 1 }};
+	String e, f [], g ;
+	int[] h, i [];
+	int j @A [], k @A[];
+	int @A [] l, m;
+	int
+		n
+		[]
+		,
+		o;
+
+	int method(int p [], String... q) [] {
+		return null;
+	}
+
+	int methodWithBrackets() [][] {
+		return null;
+	}
+
+	void declarators() {
+		int r = 1, s [] = { r }, t;
+		for (int u = 0, v[] = {}; u < v.length ; u ++) {
+			int w[] = v, x = w [0];
+		}
+		int y[] = new int [] { 1 } , z;
+		java.util.function.IntFunction<int[]> factory = int [] :: new;
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * Test file for the module directives of {@code NoWhitespaceBeforeCheck}.
+ */
+//@formatter:off
+// Noncompliant@+1 {{'.' is preceded by whitespace.}}
+module de .johannes.sample {
+	// Compliant@+1
+	requires java.logging;
+
+	// Noncompliant@+1 {{';' is preceded by whitespace.}}
+	requires java.sql ;
+
+	// Noncompliant@+1 {{',' is preceded by whitespace.}}
+	exports de.johannes.sample.api to java.base , java.logging;
+
+	// Noncompliant@+1 {{'.' is preceded by whitespace.}}
+	opens de.johannes.sample.impl to java .base;
+
+	// Noncompliant@+1 {{';' is preceded by whitespace.}}
+	uses java.sql.Driver ;
+
+	// Noncompliant@+1 {{',' is preceded by whitespace.}}
+	provides java.sql.Driver with de.johannes.sample.A , de.johannes.sample.B;
+}
@@ -1,5 +1,6 @@
 package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.sonar.java.checks.verifier.CheckVerifier;
@@ -24,4 +25,16 @@ public class TestNoWhitespaceBeforeCheck {
 		CheckVerifier.newVerifier().onFile(testFilePath).withCheck(noWhitespaceBeforeCheck).verifyIssues();
 	}
 
+	@Test
+	void testSealedTypesAndRecords() {
+		CheckVerifier.newVerifier()
+				.onFile("src/test/files/whitespace/NoWhitespaceBeforeCheck_SealedAndRecords_TestFile.java")
+				.withJavaVersion(17).withCheck(new NoWhitespaceBeforeCheck()).verifyIssues();
+	}
+
+	@Test
+	void testModuleDirectives() {
+		CheckVerifier.newVerifier().onFile("src/test/files/whitespace/module/module-info.java")
+				.withJavaVersion(17).withCheck(new NoWhitespaceBeforeCheck()).verifyIssues();
+	}
 }
@@ -0,0 +1,191 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.ForStatementTree;
+import org.sonar.plugins.java.api.tree.LabeledStatementTree;
+import org.sonar.plugins.java.api.tree.ListTree;
+import org.sonar.plugins.java.api.tree.MethodReferenceTree;
+import org.sonar.plugins.java.api.tree.StatementTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonar.plugins.java.api.tree.Tree.Kind;
+import org.sonar.plugins.java.api.tree.UnaryExpressionTree;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+
+/**
+ * Tests that {@link NoWhitespaceBeforeCheck}, which visits the trees owning
+ * its tokens, raises the same issues as the former check that visited every
+ * token of a file.
+ */
+public class TestNoWhitespaceBeforeCheckParity {
+
+	private static final String TEST_FILES = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/";
+	private static final String NON_COMPILING_TEST_FILES = "src/test/files/whitespace/";
+
+	static Stream<Arguments> testFiles() {
+		return Stream.of(TEST_FILES + "NoWhitespaceBeforeCheck_AllowLineBreaksTrue_TestFile.java",
+				TEST_FILES + "NoWhitespaceBeforeCheck_AllowLineBreaksFalse_TestFile.java",
+				TEST_FILES + "NoWhitespaceAfterCheck_AllowLineBreaksIsTrue_TestFile.java",
+				TEST_FILES + "NoWhitespaceAfterCheck_AllowLineBreaksIsFalse_TestFile.java",
+				NON_COMPILING_TEST_FILES + "NoWhitespaceBeforeCheck_SealedAndRecords_TestFile.java",
+				NON_COMPILING_TEST_FILES + "module/module-info.java",
+				NON_COMPILING_TEST_FILES + "NoWhitespaceCheck_Declarators_TestFile.java")
+				.flatMap(path -> Stream.of(Arguments.of(path, true), Arguments.of(path, false)));
+	}
+
+	static Stream<Arguments> corpusSeeds() {
+		return Stream.of(1L, 2L, 3L).flatMap(seed -> Stream.of(Arguments.of(seed, true), Arguments.of(seed, false)));
+	}
+
+	@ParameterizedTest(name = "{0}, allowLineBreaks: {1}")
+	@MethodSource("testFiles")
+	void testParityOnTestFiles(String pPath, boolean pAllowLineBreaks) throws IOException {
+		final Path path = Paths.get(pPath);
+		final String source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+
+		assertParity(CheckRunner.parse(path.getFileName().toString(), source), pAllowLineBreaks);
+	}
+
+	@ParameterizedTest(name = "seed: {0}, allowLineBreaks: {1}")
+	@MethodSource("corpusSeeds")
+	void testParityOnCorpus(long pSeed, boolean pAllowLineBreaks) {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(pSeed);
+		generator.setWhitespaceRatio(0.2);
+		generator.setLineBreakRatio(0.1);
+
+		assertParity(CheckRunner.parse("Corpus.java", generator.generate("Corpus", 2000)), pAllowLineBreaks);
+	}
+
+	private static void assertParity(CheckRunner.ParsedFile pParsedFile, boolean pAllowLineBreaks) {
+		final NoWhitespaceBeforeCheck check = new NoWhitespaceBeforeCheck();
+		check.setAllowLineBreaks(pAllowLineBreaks);
+		final TokenDrivenNoWhitespaceBeforeCheck tokenDrivenCheck = new TokenDrivenNoWhitespaceBeforeCheck(
+				pAllowLineBreaks);
+
+		final List<String> issues = describe(CheckRunner.scan(check, pParsedFile));
+		final List<String> tokenDrivenIssues = describe(CheckRunner.scan(tokenDrivenCheck, pParsedFile));
+
+		assertThat(issues).isEqualTo(tokenDrivenIssues);
+	}
+
+	private static List<String> describe(List<CheckRunner.Issue> pIssues) {
+		return pIssues.stream()
+				.map(issue -> issue.getLine() + ":" + issue.getColumn() + ": " + issue.getMessage())
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * The former implementation of {@link NoWhitespaceBeforeCheck}, which
+	 * subscribed to {@link Kind#TOKEN} and matched the text of every token.
+	 * The whitespace is found with the RegExes the rule used back then. The
+	 * issues are reported on the checked token, where {@link CheckRunner}
+	 * locates the issues of the rule as well.
+	 */
+	private static class TokenDrivenNoWhitespaceBeforeCheck extends IssuableSubscriptionVisitor {
+
+		private static final Pattern PRECEDING_LINE_BREAK = Pattern.compile("\\R\\s*\\z", Pattern.DOTALL);
+		private static final Pattern PRECEDING_WHITESPACE = Pattern.compile("\\s\\z", Pattern.DOTALL);
+
+		private final boolean allowLineBreaks;
+		private String codeText;
+		private int[] lineStartOffsets;
+
+		TokenDrivenNoWhitespaceBeforeCheck(boolean pAllowLineBreaks) {
+			allowLineBreaks = pAllowLineBreaks;
+		}
+
+		@Override
+		public List<Kind> nodesToVisit() {
+			return Arrays.asList(Kind.TOKEN, Kind.POSTFIX_DECREMENT, Kind.POSTFIX_INCREMENT, Kind.LABELED_STATEMENT,
+					Kind.METHOD_REFERENCE);
+		}
+
+		@Override
+		public void visitToken(SyntaxToken pSyntaxToken) {
+			final String text = pSyntaxToken.text();
+			final boolean candidate = Arrays.asList(".", "...", ",", ";").contains(text)
+					|| ("<".equals(text) || ">".equals(text)) && pSyntaxToken.parent().is(Kind.TYPE_ARGUMENTS,
+							Kind.TYPE_PARAMETER, Kind.TYPE_PARAMETERS);
+
+			if (candidate && !isInEmptyForInitializerOrCondition(pSyntaxToken) && hasWhitespaceBefore(pSyntaxToken)) {
+				reportIssue(pSyntaxToken, "'" + text + "' is preceded by whitespace.");
+			}
+		}
+
+		@Override
+		public void visitNode(Tree pTree) {
+			SyntaxToken tokenUnderTest = null;
+			if (pTree.is(Kind.METHOD_REFERENCE)) {
+				tokenUnderTest = ((MethodReferenceTree) pTree).doubleColon();
+			} else if (pTree.is(Kind.LABELED_STATEMENT)) {
+				tokenUnderTest = ((LabeledStatementTree) pTree).colonToken();
+			} else {
+				tokenUnderTest = ((UnaryExpressionTree) pTree).operatorToken();
+			}
+
+			if (hasWhitespaceBefore(tokenUnderTest)) {
+				reportIssue(tokenUnderTest, "'" + tokenUnderTest.text() + "' is preceded by whitespace.");
+			}
+		}
+
+		private static boolean isInEmptyForInitializerOrCondition(SyntaxToken pSyntaxToken) {
+			boolean result = false;
+			if (";".equals(pSyntaxToken.text()) && pSyntaxToken.parent().is(Kind.FOR_STATEMENT)) {
+				final ForStatementTree forStatementTree = (ForStatementTree) pSyntaxToken.parent();
+				final ListTree<StatementTree> initializer = forStatementTree.initializer();
+				final ExpressionTree condition = forStatementTree.condition();
+				result = initializer.isEmpty() && condition == null && forStatementTree.update().isEmpty();
+			}
+			return result;
+		}
+
+		private boolean hasWhitespaceBefore(SyntaxToken pSyntaxToken) {
+			if (codeText == null) {
+				codeText = context.getFileContent();
+				lineStartOffsets = computeLineStartOffsets(codeText);
+			}
+			final String leftSidedChars = codeText.substring(0,
+					lineStartOffsets[pSyntaxToken.range().start().line() - 1]
+							+ pSyntaxToken.range().start().column() - 1);
+
+			return PRECEDING_LINE_BREAK.matcher(leftSidedChars).find() ? !allowLineBreaks
+					: PRECEDING_WHITESPACE.matcher(leftSidedChars).find();
+		}
+
+		private static int[] computeLineStartOffsets(String pCodeText) {
+			final int[] offsets = new int[pCodeText.length() + 2];
+			int lineCount = 1;
+			for (int i = 0; i < pCodeText.length(); i++) {
+				final char c = pCodeText.charAt(i);
+				if (c == '\n' || c == '\r') {
+					if (c == '\r' && i + 1 < pCodeText.length() && pCodeText.charAt(i + 1) == '\n') {
+						i++;
+					}
+					offsets[lineCount++] = i + 1;
+				}
+			}
+			return Arrays.copyOf(offsets, lineCount);
+		}
+	}
+}
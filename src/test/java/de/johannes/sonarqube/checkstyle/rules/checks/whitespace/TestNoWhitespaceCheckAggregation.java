@@ -0,0 +1,98 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.harness.InMemoryCacheContext;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Tests that {@link NoWhitespaceCheck} reports the violations on a line or in
+ * a statement as one issue with secondary locations, if the issues are
+ * aggregated.
+ */
+public class TestNoWhitespaceCheckAggregation {
+
+	private static final ParsedFile PARSED_FILE = CheckRunner.parse("A.java", "class A {\n"
+			+ "\tvoid m() {\n"
+			+ "\t\tfoo . bar ( a , b , c ) ;\n"
+			+ "\t\tx = y . z ;\n"
+			+ "\t\tfoo . bar ( a ,\n"
+			+ "\t\t\t\tb ) ;\n"
+			+ "\t}\n"
+			+ "}\n");
+	private static final ParsedFile GENERATED_FILE = CheckRunner
+			.parse("Generated.java", new JavaCorpusGenerator(1L).generate("Generated", 300));
+
+	@Test
+	void testAggregationByLine() {
+		assertThat(describe(CheckRunner.scan(createCheck("line"), PARSED_FILE))).containsExactly(
+				"3: '.' is preceded by whitespace. 3 more violations on this line. cost 4",
+				"4: '.' is preceded by whitespace. 1 more violation on this line. cost 2",
+				"5: '.' is preceded by whitespace. 1 more violation on this line. cost 2",
+				"6: ';' is preceded by whitespace. cost null");
+	}
+
+	@Test
+	void testAggregationByStatement() {
+		assertThat(describe(CheckRunner.scan(createCheck("statement"), PARSED_FILE))).containsExactly(
+				"3: '.' is preceded by whitespace. 3 more violations in this statement. cost 4",
+				"4: '.' is preceded by whitespace. 1 more violation in this statement. cost 2",
+				"5: '.' is preceded by whitespace. 2 more violations in this statement. cost 3");
+	}
+
+	@ParameterizedTest(name = "aggregateIssues: {arguments}")
+	@ValueSource(strings = { "none", "unknown" })
+	void testNoAggregation(String pAggregateIssues) {
+		assertThat(CheckRunner.scan(createCheck(pAggregateIssues), PARSED_FILE)).hasSize(9)
+				.allSatisfy(issue -> assertThat(issue.getSecondaryLocations()).isEmpty());
+	}
+
+	@ParameterizedTest(name = "aggregateIssues: {arguments}")
+	@ValueSource(strings = { "line", "statement" })
+	void testNoViolationIsLost(String pAggregateIssues) {
+		final List<Issue> issues = CheckRunner.scan(createCheck(pAggregateIssues), GENERATED_FILE);
+
+		assertThat(issues.stream().mapToInt(issue -> issue.getSecondaryLocations().size() + 1).sum())
+				.isEqualTo(CheckRunner.scan(new NoWhitespaceBeforeCheck(), GENERATED_FILE).size());
+		assertThat(issues).allSatisfy(issue -> assertThat(issue.getCost())
+				.isEqualTo(issue.getSecondaryLocations().isEmpty() ? null : issue.getSecondaryLocations().size() + 1));
+	}
+
+	@ParameterizedTest(name = "aggregateIssues: {arguments}")
+	@ValueSource(strings = { "line", "statement" })
+	void testCachedIssuesAreAggregated(String pAggregateIssues) {
+		final InMemoryCacheContext cacheContext = new InMemoryCacheContext();
+		final List<Issue> firstIssues = CheckRunner.scan(createCheck(pAggregateIssues), GENERATED_FILE, cacheContext);
+
+		cacheContext.nextAnalysis();
+		final List<Issue> replayedIssues = CheckRunner.scan(createCheck(pAggregateIssues), GENERATED_FILE,
+				cacheContext);
+
+		assertThat(cacheContext.getCopiedKeys()).hasSize(1);
+		assertThat(describe(replayedIssues)).isEqualTo(describe(firstIssues));
+	}
+
+	private static NoWhitespaceCheck createCheck(String pAggregateIssues) {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setAggregateIssues(pAggregateIssues);
+		return noWhitespaceBeforeCheck;
+	}
+
+	private static List<String> describe(List<Issue> pIssues) {
+		return pIssues.stream().sorted(Comparator.comparingInt(Issue::getLine).thenComparingInt(Issue::getColumn))
+				.map(issue -> issue + " cost " + issue.getCost()).collect(Collectors.toList());
+	}
+}
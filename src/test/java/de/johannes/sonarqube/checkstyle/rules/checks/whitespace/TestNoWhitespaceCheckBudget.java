@@ -0,0 +1,98 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Tests that {@link NoWhitespaceCheck} stops analyzing a file once its budget
+ * is exceeded.
+ */
+public class TestNoWhitespaceCheckBudget {
+
+	private static final ParsedFile PARSED_FILE = CheckRunner.parse("Budget.java",
+			new JavaCorpusGenerator(1L).generate("Budget", 1000));
+
+	@ParameterizedTest(name = "raiseIssueOnBudgetExceeded: {arguments}")
+	@ValueSource(booleans = { true, false })
+	void testCandidateTokenBudget(boolean pRaiseIssueOnBudgetExceeded) {
+		final List<Issue> unlimitedIssues = CheckRunner.scan(new NoWhitespaceBeforeCheck(), PARSED_FILE);
+
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setMaxCandidateTokens(50);
+		noWhitespaceBeforeCheck.setRaiseIssueOnBudgetExceeded(pRaiseIssueOnBudgetExceeded);
+		final List<Issue> issues = CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE);
+
+		final List<Issue> fileIssues = issues.stream().filter(issue -> issue.getLine() == 0)
+				.collect(Collectors.toList());
+		final List<Issue> lineIssues = issues.stream().filter(issue -> issue.getLine() > 0)
+				.collect(Collectors.toList());
+
+		assertThat(fileIssues).hasSize(pRaiseIssueOnBudgetExceeded ? 1 : 0);
+		assertThat(fileIssues).allSatisfy(issue -> assertThat(issue.getMessage())
+				.isEqualTo("File is too expensive to analyze, NoWhitespaceBeforeCheck stopped after 50 candidate tokens."));
+		assertThat(lineIssues).hasSizeLessThan(unlimitedIssues.size());
+		assertThat(unlimitedIssues.subList(0, lineIssues.size())).extracting(Issue::toString)
+				.isEqualTo(lineIssues.stream().map(Issue::toString).collect(Collectors.toList()));
+	}
+
+	@Test
+	void testNoTokenScannedBeyondBudget() {
+		final ScanCountingCheck scanCountingCheck = new ScanCountingCheck();
+		scanCountingCheck.setMaxCandidateTokens(50);
+
+		CheckRunner.scan(scanCountingCheck, PARSED_FILE);
+
+		assertThat(scanCountingCheck.scannedTokens).isEqualTo(50);
+	}
+
+	@Test
+	void testBudgetIsPerFile() {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setMaxCandidateTokens(50);
+		noWhitespaceBeforeCheck.setRaiseIssueOnBudgetExceeded(true);
+
+		final List<Issue> firstIssues = CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE);
+		final List<Issue> secondIssues = CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE);
+
+		assertThat(secondIssues).extracting(Issue::toString)
+				.isEqualTo(firstIssues.stream().map(Issue::toString).collect(Collectors.toList()));
+	}
+
+	@Test
+	void testUnlimitedByDefault() {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setMaxFileMillis(0);
+
+		assertThat(CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE))
+				.noneMatch(issue -> issue.getLine() == 0)
+				.isNotEmpty();
+	}
+
+	/**
+	 * Counts the tokens whose left neighbor is scanned.
+	 */
+	private static class ScanCountingCheck extends NoWhitespaceBeforeCheck {
+
+		private int scannedTokens;
+
+		@Override
+		protected Neighbor scanLeftNeighbor(SyntaxToken pSyntaxToken) {
+			scannedTokens++;
+			return super.scanLeftNeighbor(pSyntaxToken);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.harness.InMemoryCacheContext;
+import de.johannes.sonarqube.checkstyle.rules.harness.MapConfiguration;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+import de.johannes.sonarqube.checkstyle.rules.metrics.RuleMetrics;
+import de.johannes.sonarqube.checkstyle.rules.plugin.JavaRulesPlugin;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Tests that {@link NoWhitespaceCheck} replays the issues of unchanged files
+ * from the analysis cache.
+ */
+public class TestNoWhitespaceCheckCache {
+
+	private static final String SOURCE = new JavaCorpusGenerator(1L).generate("Cached", 300);
+	private static final ParsedFile PARSED_FILE = CheckRunner.parse("Cached.java", SOURCE);
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testUnchangedFileIsReplayed(boolean pUseTokenRanges) {
+		final InMemoryCacheContext cacheContext = new InMemoryCacheContext();
+
+		final List<Issue> firstIssues = CheckRunner.scan(createCheck(pUseTokenRanges), PARSED_FILE, cacheContext);
+		assertThat(cacheContext.getWrittenKeys()).hasSize(1);
+		assertThat(firstIssues).isNotEmpty();
+
+		cacheContext.nextAnalysis();
+		final List<Issue> secondIssues = CheckRunner.scan(createCheck(pUseTokenRanges), PARSED_FILE, cacheContext);
+		assertThat(cacheContext.getWrittenKeys()).isEmpty();
+		assertThat(cacheContext.getCopiedKeys()).hasSize(1);
+		assertThat(describe(secondIssues)).isEqualTo(describe(firstIssues));
+
+		cacheContext.nextAnalysis();
+		assertThat(describe(CheckRunner.scan(createCheck(pUseTokenRanges), PARSED_FILE, cacheContext)))
+				.isEqualTo(describe(firstIssues));
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testChangedFileIsAnalyzed(boolean pUseTokenRanges) {
+		final InMemoryCacheContext cacheContext = new InMemoryCacheContext();
+		CheckRunner.scan(createCheck(pUseTokenRanges), PARSED_FILE, cacheContext);
+
+		cacheContext.nextAnalysis();
+		final ParsedFile changedFile = CheckRunner.parse("Cached.java", SOURCE.replace("values.length", "values .length"));
+		final List<Issue> issues = CheckRunner.scan(createCheck(pUseTokenRanges), changedFile, cacheContext);
+
+		assertThat(cacheContext.getWrittenKeys()).hasSize(1);
+		assertThat(cacheContext.getCopiedKeys()).isEmpty();
+		assertThat(describe(issues)).isEqualTo(describe(CheckRunner.scan(createCheck(pUseTokenRanges), changedFile)));
+	}
+
+	@Test
+	void testTokenRangesDoNotLoadTheText() {
+		final AnalysisMetrics analysisMetrics = new AnalysisMetrics(
+				new MapConfiguration().put(JavaRulesPlugin.METRICS_ENABLED_KEY, "true"));
+		final NoWhitespaceCheck noWhitespaceCheck = createCheck(true);
+		noWhitespaceCheck.setAnalysisMetrics(analysisMetrics);
+		CheckRunner.scan(noWhitespaceCheck, PARSED_FILE, new InMemoryCacheContext());
+
+		final List<RuleMetrics> ruleMetrics = analysisMetrics.getRuleMetrics();
+		assertThat(ruleMetrics).hasSize(1);
+		assertThat(ruleMetrics.get(0).getTextChars()).isZero();
+	}
+
+	@Test
+	void testChangedRulePropertiesAreAnalyzed() {
+		final InMemoryCacheContext cacheContext = new InMemoryCacheContext();
+		CheckRunner.scan(new NoWhitespaceBeforeCheck(), PARSED_FILE, cacheContext);
+
+		cacheContext.nextAnalysis();
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setAllowLineBreaks(false);
+		final List<Issue> issues = CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE, cacheContext);
+
+		assertThat(cacheContext.getWrittenKeys()).hasSize(1);
+		assertThat(cacheContext.getCopiedKeys()).isEmpty();
+		assertThat(describe(issues)).isEqualTo(describe(CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE)));
+	}
+
+	@Test
+	void testRulesHaveSeparateEntries() {
+		final InMemoryCacheContext cacheContext = new InMemoryCacheContext();
+		CheckRunner.scan(new NoWhitespaceBeforeCheck(), PARSED_FILE, cacheContext);
+		CheckRunner.scan(new NoWhitespaceAfterCheck(), PARSED_FILE, cacheContext);
+
+		assertThat(cacheContext.getWrittenKeys()).hasSize(2);
+	}
+
+	@Test
+	void testExceededBudgetIsNotCached() {
+		final InMemoryCacheContext cacheContext = new InMemoryCacheContext();
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setMaxCandidateTokens(10);
+		CheckRunner.scan(noWhitespaceBeforeCheck, PARSED_FILE, cacheContext);
+
+		assertThat(cacheContext.getWrittenKeys()).isEmpty();
+	}
+
+	private static NoWhitespaceCheck createCheck(boolean pUseTokenRanges) {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setUseTokenRanges(pUseTokenRanges);
+		return noWhitespaceBeforeCheck;
+	}
+
+	private static List<String> describe(List<Issue> pIssues) {
+		return pIssues.stream().map(Issue::toString).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,239 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.IncrementalResults;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+
+/**
+ * Tests that the incremental analysis of {@link NoWhitespaceCheck} reports
+ * the same issues on an edited file as a full analysis. Like in SonarLint,
+ * each analysis creates new rules, which are handed the
+ * {@link IncrementalResults} that keep the results of the previous analysis.
+ */
+public class TestNoWhitespaceCheckIncremental {
+
+	private static final String UNIT_NAME = "Edited.java";
+	private static final List<String> LINES = Arrays.asList(createSource().split("\n", -1));
+
+	private IncrementalResults incrementalResults;
+
+	@BeforeEach
+	void setUp() {
+		incrementalResults = new IncrementalResults();
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testEditedLine(boolean pUseTokenRanges) {
+		verifyIncrementalAnalysis(pUseTokenRanges, lines -> {
+			final int line = findLine(lines, "System");
+			lines.set(line, lines.get(line).replace(".", " . "));
+			return lines;
+		});
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testInsertedLines(boolean pUseTokenRanges) {
+		verifyIncrementalAnalysis(pUseTokenRanges, lines -> {
+			final int line = findLine(lines, "System");
+			lines.add(line, "\t\t// inserted");
+			lines.add(line, "\t\tSystem . out . println (values) ;");
+			return lines;
+		});
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testDeletedLine(boolean pUseTokenRanges) {
+		verifyIncrementalAnalysis(pUseTokenRanges, lines -> {
+			lines.remove(findLine(lines, "System"));
+			return lines;
+		});
+	}
+
+	@Test
+	void testUnchangedFile() {
+		verifyIncrementalAnalysis(false, lines -> lines);
+	}
+
+	@Test
+	void testFilesAreKeptApart() {
+		final String source = String.join("\n", LINES);
+		final String otherSource = new JavaCorpusGenerator(2L).generate("Edited", 200);
+
+		CheckRunner.scan(createIncrementalCheck(), CheckRunner.parse(UNIT_NAME, source));
+		CheckRunner.scan(createIncrementalCheck(), CheckRunner.parse("Other.java", otherSource));
+
+		assertThat(describe(CheckRunner.scan(createIncrementalCheck(), CheckRunner.parse(UNIT_NAME, source))))
+				.isEqualTo(describe(CheckRunner.scan(new NoWhitespaceBeforeCheck(), CheckRunner.parse(UNIT_NAME,
+						source))));
+	}
+
+	@Test
+	void testChangedRulePropertiesAreAnalyzedInFull() {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(3L);
+		generator.setLineBreakRatio(0.2);
+		final List<String> lines = Arrays.asList(generator.generate("Edited", 200).split("\n", -1));
+		final String source = String.join("\n", lines);
+		final List<String> editedLines = new ArrayList<>(lines);
+		final int line = findLine(editedLines, "System");
+		editedLines.set(line, editedLines.get(line).replace(".", " . "));
+		final String editedSource = String.join("\n", editedLines);
+
+		CheckRunner.scan(createIncrementalCheck(), CheckRunner.parse(UNIT_NAME, source));
+		final NoWhitespaceBeforeCheck incrementalCheck = createIncrementalCheck();
+		incrementalCheck.setAllowLineBreaks(false);
+		final List<Issue> incrementalIssues = CheckRunner.scan(incrementalCheck,
+				CheckRunner.parse(UNIT_NAME, editedSource));
+
+		final NoWhitespaceBeforeCheck fullCheck = new NoWhitespaceBeforeCheck();
+		fullCheck.setAllowLineBreaks(false);
+		final List<Issue> fullIssues = CheckRunner.scan(fullCheck, CheckRunner.parse(UNIT_NAME, editedSource));
+
+		assertThat(describe(fullIssues)).isNotEqualTo(
+				describe(CheckRunner.scan(new NoWhitespaceBeforeCheck(), CheckRunner.parse(UNIT_NAME, editedSource))));
+		assertThat(describe(incrementalIssues)).isEqualTo(describe(fullIssues));
+	}
+
+	/**
+	 * Tests that the results are only carried over within the same
+	 * {@link IncrementalResults}, visible from the carried over issues being
+	 * reported before the ones evaluated again.
+	 */
+	@Test
+	void testResultsAreKeptApartPerComponent() {
+		final String editedSource = createEditedSource();
+
+		CheckRunner.scan(createIncrementalCheck(), CheckRunner.parse(UNIT_NAME, String.join("\n", LINES)));
+		final List<Issue> incrementalIssues = CheckRunner.scan(createIncrementalCheck(),
+				CheckRunner.parse(UNIT_NAME, editedSource));
+
+		final NoWhitespaceBeforeCheck otherCheck = new NoWhitespaceBeforeCheck();
+		otherCheck.setIncrementalAnalysis(true);
+		otherCheck.setIncrementalResults(new IncrementalResults());
+		final List<Issue> otherIssues = CheckRunner.scan(otherCheck, CheckRunner.parse(UNIT_NAME, editedSource));
+
+		final List<Issue> fullIssues = CheckRunner.scan(new NoWhitespaceBeforeCheck(),
+				CheckRunner.parse(UNIT_NAME, editedSource));
+
+		assertThat(toStrings(otherIssues)).isEqualTo(toStrings(fullIssues));
+		assertThat(toStrings(incrementalIssues)).isNotEqualTo(toStrings(fullIssues));
+		assertThat(describe(incrementalIssues)).isEqualTo(describe(fullIssues));
+	}
+
+	@Test
+	void testRuleWithoutResultsAnalyzesInFull() {
+		final String editedSource = createEditedSource();
+
+		final NoWhitespaceBeforeCheck firstCheck = new NoWhitespaceBeforeCheck();
+		firstCheck.setIncrementalAnalysis(true);
+		CheckRunner.scan(firstCheck, CheckRunner.parse(UNIT_NAME, String.join("\n", LINES)));
+		final NoWhitespaceBeforeCheck incrementalCheck = new NoWhitespaceBeforeCheck();
+		incrementalCheck.setIncrementalAnalysis(true);
+		final List<Issue> incrementalIssues = CheckRunner.scan(incrementalCheck,
+				CheckRunner.parse(UNIT_NAME, editedSource));
+
+		assertThat(toStrings(incrementalIssues)).isEqualTo(toStrings(
+				CheckRunner.scan(new NoWhitespaceBeforeCheck(), CheckRunner.parse(UNIT_NAME, editedSource))));
+	}
+
+	private NoWhitespaceBeforeCheck createIncrementalCheck() {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setIncrementalAnalysis(true);
+		noWhitespaceBeforeCheck.setIncrementalResults(incrementalResults);
+		return noWhitespaceBeforeCheck;
+	}
+
+	private void verifyIncrementalAnalysis(boolean pUseTokenRanges, UnaryOperator<List<String>> pEdit) {
+		verifyIncrementalAnalysis(() -> {
+			final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+			noWhitespaceBeforeCheck.setUseTokenRanges(pUseTokenRanges);
+			return noWhitespaceBeforeCheck;
+		}, pEdit);
+		verifyIncrementalAnalysis(() -> {
+			final NoWhitespaceAfterCheck noWhitespaceAfterCheck = new NoWhitespaceAfterCheck();
+			noWhitespaceAfterCheck.setUseTokenRanges(pUseTokenRanges);
+			return noWhitespaceAfterCheck;
+		}, pEdit);
+	}
+
+	private void verifyIncrementalAnalysis(Supplier<NoWhitespaceCheck> pCheckFactory,
+			UnaryOperator<List<String>> pEdit) {
+		final NoWhitespaceCheck firstCheck = pCheckFactory.get();
+		firstCheck.setIncrementalAnalysis(true);
+		firstCheck.setIncrementalResults(incrementalResults);
+		CheckRunner.scan(firstCheck, CheckRunner.parse(UNIT_NAME, String.join("\n", LINES)));
+
+		final String editedSource = String.join("\n", pEdit.apply(new ArrayList<>(LINES)));
+		final NoWhitespaceCheck incrementalCheck = pCheckFactory.get();
+		incrementalCheck.setIncrementalAnalysis(true);
+		incrementalCheck.setIncrementalResults(incrementalResults);
+		final List<Issue> incrementalIssues = CheckRunner.scan(incrementalCheck,
+				CheckRunner.parse(UNIT_NAME, editedSource));
+		final List<Issue> fullIssues = CheckRunner.scan(pCheckFactory.get(),
+				CheckRunner.parse(UNIT_NAME, editedSource));
+
+		assertThat(fullIssues).isNotEmpty();
+		assertThat(describe(incrementalIssues)).isEqualTo(describe(fullIssues));
+	}
+
+	/**
+	 * Adds whitespace around the dots of a line in the middle of the file.
+	 */
+	private static String createEditedSource() {
+		final List<String> editedLines = new ArrayList<>(LINES);
+		final int line = findLine(editedLines, "System");
+		editedLines.set(line, editedLines.get(line).replace(".", " . "));
+		return String.join("\n", editedLines);
+	}
+
+	private static String createSource() {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(1L);
+		generator.setLineBreakRatio(0);
+		return generator.generate("Edited", 200);
+	}
+
+	/**
+	 * Finds the first line containing a text in the middle of the file.
+	 */
+	private static int findLine(List<String> pLines, String pText) {
+		for (int line = pLines.size() / 2; line < pLines.size(); line++) {
+			if (pLines.get(line).trim().startsWith(pText)) {
+				return line;
+			}
+		}
+		throw new IllegalArgumentException("No line starts with " + pText);
+	}
+
+	private static List<String> toStrings(List<Issue> pIssues) {
+		return pIssues.stream().map(Issue::toString).collect(Collectors.toList());
+	}
+
+	/**
+	 * Describes the issues in the order of their lines, as the issues carried
+	 * over are reported before the ones evaluated again.
+	 */
+	private static List<String> describe(List<Issue> pIssues) {
+		return pIssues.stream().sorted((issue, otherIssue) -> Integer.compare(issue.getLine(), otherIssue.getLine()))
+				.map(Issue::toString).collect(Collectors.toList());
+	}
+}
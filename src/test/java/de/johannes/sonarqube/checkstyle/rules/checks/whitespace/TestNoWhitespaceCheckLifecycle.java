@@ -0,0 +1,66 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.java.checks.verifier.CheckVerifier;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceEngine;
+
+/**
+ * Tests the per-file lifecycle of {@link NoWhitespaceCheck}.
+ */
+public class TestNoWhitespaceCheckLifecycle {
+
+	private static final String TEST_FILE_ALLOW_LINE_BREAKS_TRUE = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceAfterCheck_AllowLineBreaksIsTrue_TestFile.java";
+	private static final String TEST_FILE_ALLOW_LINE_BREAKS_FALSE = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceAfterCheck_AllowLineBreaksIsFalse_TestFile.java";
+
+	@Test
+	void testSequentialFilesWithOneInstance() {
+		final InspectableNoWhitespaceAfterCheck check = new InspectableNoWhitespaceAfterCheck();
+
+		check.setAllowLineBreaks(true);
+		CheckVerifier.newVerifier().onFile(TEST_FILE_ALLOW_LINE_BREAKS_TRUE).withCheck(check).verifyIssues();
+		assertReleased(check);
+
+		check.setAllowLineBreaks(false);
+		CheckVerifier.newVerifier().onFile(TEST_FILE_ALLOW_LINE_BREAKS_FALSE).withCheck(check).verifyIssues();
+		assertReleased(check);
+
+		check.setAllowLineBreaks(true);
+		CheckVerifier.newVerifier().onFile(TEST_FILE_ALLOW_LINE_BREAKS_TRUE).withCheck(check).verifyIssues();
+		assertReleased(check);
+	}
+
+	/**
+	 * Asserts that the check left the last file and that the shared engine of
+	 * the file, along with its source model, is no longer held in the registry.
+	 */
+	private static void assertReleased(InspectableNoWhitespaceAfterCheck pCheck) {
+		assertThat(pCheck.lastContext).isNotNull();
+		assertThat(NoWhitespaceEngine.isAcquired(pCheck.lastContext)).isFalse();
+		assertThat(pCheck.getRetainedCodeText()).isNull();
+	}
+
+	/**
+	 * Gives access to the per-file state of the check.
+	 */
+	private static class InspectableNoWhitespaceAfterCheck extends NoWhitespaceAfterCheck {
+
+		private JavaFileScannerContext lastContext;
+
+		@Override
+		public void setContext(JavaFileScannerContext pContext) {
+			super.setContext(pContext);
+			lastContext = pContext;
+			assertThat(NoWhitespaceEngine.isAcquired(pContext)).isTrue();
+		}
+
+		String getRetainedCodeText() {
+			return getCodeText();
+		}
+	}
+}
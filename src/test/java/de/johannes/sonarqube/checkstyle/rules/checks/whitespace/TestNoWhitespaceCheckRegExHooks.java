@@ -0,0 +1,69 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+
+/**
+ * Tests the regions the RegEx hooks of
+ * {@link de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck} are
+ * applied to.
+ */
+public class TestNoWhitespaceCheckRegExHooks {
+
+	private static final String SOURCE = "package a;\n\n@Deprecated\nclass A {\n\n\tint b = -1;\n}\n";
+	/** Matches everything from the package declaration to the token. */
+	private static final String REG_EX_SINCE_PACKAGE = "package a;.*";
+
+	@Test
+	void testLeftSidedRegExSeesTheCodeFromTheBeginning() {
+		final LeftSidedMatchingCheck check = new LeftSidedMatchingCheck(-1);
+
+		CheckRunner.scan(check, CheckRunner.parse("A.java", SOURCE));
+
+		assertThat(check.matchingTokens).contains("@", "-");
+	}
+
+	@Test
+	void testLeftSidedRegExWithinWindow() {
+		final LeftSidedMatchingCheck check = new LeftSidedMatchingCheck(1);
+
+		CheckRunner.scan(check, CheckRunner.parse("A.java", SOURCE));
+
+		assertThat(check.matchingTokens).contains("@").doesNotContain("-");
+	}
+
+	/**
+	 * Records the first tokens of the visited nodes a left sided RegEx
+	 * matches.
+	 */
+	private static class LeftSidedMatchingCheck extends NoWhitespaceAfterCheck {
+
+		/** Lines of the look-behind window, negative for the whole code. */
+		private final int lookBehindLines;
+		private final List<String> matchingTokens = new ArrayList<>();
+
+		LeftSidedMatchingCheck(int pLookBehindLines) {
+			lookBehindLines = pLookBehindLines;
+		}
+
+		@Override
+		protected void checkNode(Tree pTree) {
+			final SyntaxToken firstToken = pTree.firstToken();
+			if (firstToken != null && (lookBehindLines < 0
+					? isRegExMatchingLeftSidedCharsOfToken(firstToken, REG_EX_SINCE_PACKAGE)
+					: isRegExMatchingLeftSidedCharsOfToken(firstToken, REG_EX_SINCE_PACKAGE, lookBehindLines))) {
+				matchingTokens.add(firstToken.text());
+			}
+			super.checkNode(pTree);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.sun.management.ThreadMXBean;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Tests that the analysis time and the allocated bytes of
+ * {@link NoWhitespaceCheck} grow linearly with the size of the file. Each
+ * check is run on generated files of doubling size; the growth per doubling,
+ * fitted over all sizes, must not exceed a factor that can be configured by
+ * the system properties <code>scaling.maxTimeGrowth</code> and
+ * <code>scaling.maxAllocationGrowth</code>. Linear checks grow by about
+ * <code>2</code>, quadratic ones by about <code>4</code>. The CPU time is
+ * noisy on shared machines, so its limit is lenient and only catches
+ * quadratic growth; the allocated bytes are deterministic and their limit is
+ * strict.
+ */
+public class TestNoWhitespaceCheckScaling {
+
+	private static final int[] LINES = { 2000, 4000, 8000, 16000 };
+	private static final int RUNS = 5;
+	/** Number of times all sizes are measured, one after another. */
+	private static final int ROUNDS = 3;
+	private static final long SEED = 20221017L;
+
+	private static final double MAX_TIME_GROWTH = Double.parseDouble(System.getProperty("scaling.maxTimeGrowth", "3.5"));
+	private static final double MAX_ALLOCATION_GROWTH = Double
+			.parseDouble(System.getProperty("scaling.maxAllocationGrowth", "2.6"));
+
+	private static final ThreadMXBean THREAD_MX_BEAN = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final List<ParsedFile> PARSED_FILES = new ArrayList<>();
+
+	@BeforeAll
+	static void setUp() {
+		Assumptions.assumeTrue(THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported(), "thread CPU time not supported");
+		Assumptions.assumeTrue(THREAD_MX_BEAN.isThreadAllocatedMemorySupported(),
+				"thread allocated memory not supported");
+		THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+		THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(SEED);
+		generator.setLineBreakRatio(0.05);
+		for (final int lines : LINES) {
+			PARSED_FILES.add(CheckRunner.parse("Scaling.java", generator.generate("Scaling", lines)));
+		}
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testNoWhitespaceAfterCheckScalesLinearly(boolean pUseTokenRanges) {
+		verifyLinearScaling(() -> {
+			final NoWhitespaceAfterCheck noWhitespaceAfterCheck = new NoWhitespaceAfterCheck();
+			noWhitespaceAfterCheck.setAllowLineBreaks(false);
+			noWhitespaceAfterCheck.setUseTokenRanges(pUseTokenRanges);
+			return noWhitespaceAfterCheck;
+		});
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testNoWhitespaceBeforeCheckScalesLinearly(boolean pUseTokenRanges) {
+		verifyLinearScaling(() -> {
+			final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+			noWhitespaceBeforeCheck.setAllowLineBreaks(false);
+			noWhitespaceBeforeCheck.setUseTokenRanges(pUseTokenRanges);
+			return noWhitespaceBeforeCheck;
+		});
+	}
+
+	private static void verifyLinearScaling(Supplier<NoWhitespaceCheck> pCheckFactory) {
+		final NoWhitespaceCheck check = pCheckFactory.get();
+
+		// warm up on the largest file, so the first size is not measured
+		// interpreted
+		for (int run = 0; run < RUNS; run++) {
+			CheckRunner.scan(check, PARSED_FILES.get(PARSED_FILES.size() - 1));
+		}
+
+		// each round measures all sizes, so a slow phase of the machine
+		// does not hit a single size only
+		final long[][] times = new long[LINES.length][ROUNDS];
+		final long[][] allocations = new long[LINES.length][ROUNDS];
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int size = 0; size < LINES.length; size++) {
+				times[size][round] = Long.MAX_VALUE;
+				allocations[size][round] = Long.MAX_VALUE;
+
+				for (int run = 0; run < RUNS; run++) {
+					final long timeBefore = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+					final long allocationBefore = THREAD_MX_BEAN
+							.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+					CheckRunner.scan(check, PARSED_FILES.get(size));
+
+					final long allocation = THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId())
+							- allocationBefore;
+					final long time = THREAD_MX_BEAN.getCurrentThreadCpuTime() - timeBefore;
+					times[size][round] = Math.min(times[size][round], time);
+					allocations[size][round] = Math.min(allocations[size][round], allocation);
+				}
+			}
+		}
+
+		final long[] medianTimes = medians(times);
+		final long[] medianAllocations = medians(allocations);
+		assertThat(fittedGrowth(medianTimes)).as("time growth per doubling, CPU nanos %s", describe(medianTimes))
+				.isLessThanOrEqualTo(MAX_TIME_GROWTH);
+		assertThat(fittedGrowth(medianAllocations))
+				.as("allocation growth per doubling, bytes %s", describe(medianAllocations))
+				.isLessThanOrEqualTo(MAX_ALLOCATION_GROWTH);
+	}
+
+	private static long[] medians(long[][] pValues) {
+		final long[] result = new long[pValues.length];
+		for (int size = 0; size < pValues.length; size++) {
+			final long[] values = pValues[size].clone();
+			Arrays.sort(values);
+			result[size] = values[values.length / 2];
+		}
+		return result;
+	}
+
+	/**
+	 * The growth per doubling of the size, from the slope of a least-squares
+	 * line through all measurements on a log-log scale. Unlike the ratio of
+	 * the last to the first measurement, every size contributes, so a single
+	 * noisy measurement cannot dominate.
+	 */
+	private static double fittedGrowth(long[] pValues) {
+		double sumX = 0;
+		double sumY = 0;
+		for (int size = 0; size < pValues.length; size++) {
+			sumX += log2(LINES[size]);
+			sumY += log2(Math.max(1, pValues[size]));
+		}
+		final double meanX = sumX / pValues.length;
+		final double meanY = sumY / pValues.length;
+
+		double covariance = 0;
+		double variance = 0;
+		for (int size = 0; size < pValues.length; size++) {
+			final double x = log2(LINES[size]) - meanX;
+			covariance += x * (log2(Math.max(1, pValues[size])) - meanY);
+			variance += x * x;
+		}
+
+		return Math.pow(2, covariance / variance);
+	}
+
+	private static double log2(double pValue) {
+		return Math.log(pValue) / Math.log(2);
+	}
+
+	private static String describe(long[] pValues) {
+		final StringBuilder description = new StringBuilder();
+		for (int size = 0; size < LINES.length; size++) {
+			if (size > 0) {
+				description.append(", ");
+			}
+			description.append(LINES[size]).append(" lines: ").append(pValues[size]);
+		}
+		return description.toString();
+	}
+}
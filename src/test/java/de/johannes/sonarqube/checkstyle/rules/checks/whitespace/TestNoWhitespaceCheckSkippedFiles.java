@@ -0,0 +1,68 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.sonar.java.checks.verifier.CheckVerifier;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+
+/**
+ * Tests that {@link NoWhitespaceCheck} skips generated and oversized files.
+ */
+public class TestNoWhitespaceCheckSkippedFiles {
+
+	private static final String GENERATED_ANNOTATION_TEST_FILE = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceCheck_GeneratedAnnotation_TestFile.java";
+	private static final String GENERATED_HEADER_TEST_FILE = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceCheck_GeneratedHeader_TestFile.java";
+
+	@ParameterizedTest(name = "testFile: {arguments}")
+	@ValueSource(strings = { GENERATED_ANNOTATION_TEST_FILE, GENERATED_HEADER_TEST_FILE })
+	void testGeneratedCodeIsAnalyzedByDefault(String pTestFile) {
+		CheckVerifier.newVerifier().onFile(pTestFile).withCheck(new NoWhitespaceBeforeCheck()).verifyIssues();
+	}
+
+	@ParameterizedTest(name = "testFile: {arguments}")
+	@ValueSource(strings = { GENERATED_ANNOTATION_TEST_FILE, GENERATED_HEADER_TEST_FILE })
+	void testGeneratedCodeIsSkipped(String pTestFile) throws IOException {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setSkipGeneratedCode(true);
+
+		assertThat(CheckRunner.scan(noWhitespaceBeforeCheck, parse(pTestFile))).isEmpty();
+	}
+
+	@Test
+	void testGeneratedCodeMarkers() throws IOException {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setSkipGeneratedCode(true);
+		noWhitespaceBeforeCheck.setGeneratedCodeMarkers("generated by jaxb");
+
+		assertThat(CheckRunner.scan(noWhitespaceBeforeCheck, parse(GENERATED_HEADER_TEST_FILE))).hasSize(2);
+	}
+
+	@Test
+	void testOversizedFileIsSkipped() throws IOException {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+
+		noWhitespaceBeforeCheck.setMaxFileLines(10);
+		assertThat(CheckRunner.scan(noWhitespaceBeforeCheck, parse(GENERATED_HEADER_TEST_FILE))).isEmpty();
+
+		noWhitespaceBeforeCheck.setMaxFileLines(100);
+		assertThat(CheckRunner.scan(noWhitespaceBeforeCheck, parse(GENERATED_HEADER_TEST_FILE))).hasSize(2);
+	}
+
+	private static CheckRunner.ParsedFile parse(String pTestFile) throws IOException {
+		final Path path = Paths.get(pTestFile);
+		return CheckRunner.parse(path.getFileName().toString(),
+				new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,293 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.sonar.java.checks.verifier.CheckVerifier;
+import org.sonar.plugins.java.api.SubscriptionVisitor;
+import org.sonar.plugins.java.api.location.Position;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.TokenStream;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Tests that {@link NoWhitespaceCheck} raises the same issues when the
+ * whitespace is derived from the token ranges instead of the source text.
+ * The issues of both modes may only differ on the tokens of the known
+ * differences listed at {@link TokenStream}.
+ */
+public class TestNoWhitespaceCheckTokenRanges {
+
+	private static final String TEST_FILES = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/";
+	private static final String DECLARATORS_TEST_FILE = "src/test/files/whitespace/NoWhitespaceCheck_Declarators_TestFile.java";
+	private static final String UNICODE_ESCAPE = "\\u";
+	/** Length of a Unicode escape, e.g. <code>&#92;u0020</code>. */
+	private static final int UNICODE_ESCAPE_LENGTH = 6;
+
+	@ParameterizedTest(name = "allowLineBreaks: {arguments}")
+	@ValueSource(booleans = { true, false })
+	void testNoWhitespaceAfterCheckParity(boolean pAllowLineBreaks) {
+		final NoWhitespaceAfterCheck noWhitespaceAfterCheck = new NoWhitespaceAfterCheck();
+		noWhitespaceAfterCheck.setAllowLineBreaks(pAllowLineBreaks);
+		noWhitespaceAfterCheck.setUseTokenRanges(true);
+
+		final String testFilePath = pAllowLineBreaks
+				? "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceAfterCheck_AllowLineBreaksIsTrue_TestFile.java"
+				: "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceAfterCheck_AllowLineBreaksIsFalse_TestFile.java";
+
+		CheckVerifier.newVerifier().onFile(testFilePath).withCheck(noWhitespaceAfterCheck).verifyIssues();
+	}
+
+	@ParameterizedTest(name = "allowLineBreaks: {arguments}")
+	@ValueSource(booleans = { true, false })
+	void testNoWhitespaceBeforeCheckParity(boolean pAllowLineBreaks) {
+		final NoWhitespaceBeforeCheck noWhitespaceBeforeCheck = new NoWhitespaceBeforeCheck();
+		noWhitespaceBeforeCheck.setAllowLineBreaks(pAllowLineBreaks);
+		noWhitespaceBeforeCheck.setUseTokenRanges(true);
+
+		final String testFilePath = pAllowLineBreaks
+				? "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceBeforeCheck_AllowLineBreaksTrue_TestFile.java"
+				: "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceBeforeCheck_AllowLineBreaksFalse_TestFile.java";
+
+		CheckVerifier.newVerifier().onFile(testFilePath).withCheck(noWhitespaceBeforeCheck).verifyIssues();
+	}
+
+	static Stream<Arguments> testFiles() {
+		return Stream.of(TEST_FILES + "NoWhitespaceAfterCheck_AllowLineBreaksIsTrue_TestFile.java",
+				TEST_FILES + "NoWhitespaceAfterCheck_AllowLineBreaksIsFalse_TestFile.java",
+				TEST_FILES + "NoWhitespaceBeforeCheck_AllowLineBreaksTrue_TestFile.java",
+				TEST_FILES + "NoWhitespaceBeforeCheck_AllowLineBreaksFalse_TestFile.java",
+				DECLARATORS_TEST_FILE)
+				.flatMap(file -> Stream.of(Arguments.of(file, true), Arguments.of(file, false)));
+	}
+
+	static Stream<Arguments> corpusSeeds() {
+		return Stream.of(1L, 2L, 3L).flatMap(seed -> Stream.of(Arguments.of(seed, true), Arguments.of(seed, false)));
+	}
+
+	@ParameterizedTest(name = "{0}, allowLineBreaks: {1}")
+	@MethodSource("testFiles")
+	void testModesDifferOnlyByKnownDifferencesOnTestFiles(String pPath, boolean pAllowLineBreaks)
+			throws IOException {
+		final Path path = Paths.get(pPath);
+		final String source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+
+		assertOnlyKnownDifferences(CheckRunner.parse(path.getFileName().toString(), source), pAllowLineBreaks);
+	}
+
+	/**
+	 * sonar-java visits the brackets of C-style array declarators before the
+	 * name and the type shared by several declarators once per declarator,
+	 * yet every token is found at its start.
+	 */
+	@Test
+	void testTokenStreamFindsEveryToken() throws IOException {
+		final String source = new String(Files.readAllBytes(Paths.get(DECLARATORS_TEST_FILE)),
+				StandardCharsets.UTF_8);
+		final ParsedFile parsedFile = CheckRunner.parse("NoWhitespaceCheck_Declarators_TestFile.java", source);
+		final TokenStream tokenStream = TokenStream.of(parsedFile.getTree());
+
+		final List<String> missingTokens = new ArrayList<>();
+		new SubscriptionVisitor() {
+			@Override
+			public List<Tree.Kind> nodesToVisit() {
+				return Collections.singletonList(Tree.Kind.TOKEN);
+			}
+
+			@Override
+			public void visitToken(SyntaxToken pSyntaxToken) {
+				final Position start = pSyntaxToken.range().start();
+				if (!pSyntaxToken.text().isEmpty()
+						&& tokenStream.findToken(start.line(), start.column()) != pSyntaxToken) {
+					missingTokens.add(start.line() + ":" + start.column() + ": " + pSyntaxToken.text());
+				}
+			}
+
+			void scan() {
+				scanTree(parsedFile.getTree());
+			}
+		}.scan();
+
+		assertThat(missingTokens).isEmpty();
+	}
+
+	@ParameterizedTest(name = "seed: {0}, allowLineBreaks: {1}")
+	@MethodSource("corpusSeeds")
+	void testModesDifferOnlyByKnownDifferencesOnCorpus(long pSeed, boolean pAllowLineBreaks) {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(pSeed);
+		generator.setWhitespaceRatio(0.2);
+		generator.setLineBreakRatio(0.1);
+
+		assertOnlyKnownDifferences(CheckRunner.parse("Corpus.java", generator.generate("Corpus", 2000)),
+				pAllowLineBreaks);
+	}
+
+	/**
+	 * Runs both rules in both modes on the same tree and asserts that every
+	 * token raised on in only one of the modes is a known difference.
+	 */
+	private static void assertOnlyKnownDifferences(ParsedFile pParsedFile, boolean pAllowLineBreaks) {
+		final List<String> unknownDifferences = new ArrayList<>();
+
+		for (final boolean after : new boolean[] { true, false }) {
+			final Map<SyntaxToken, String> textIssues = raiseIssues(pParsedFile, after, false, pAllowLineBreaks);
+			final Map<SyntaxToken, String> tokenRangeIssues = raiseIssues(pParsedFile, after, true,
+					pAllowLineBreaks);
+
+			collectUnknownDifferences(pParsedFile.getSource(), textIssues, tokenRangeIssues, after,
+					unknownDifferences);
+			collectUnknownDifferences(pParsedFile.getSource(), tokenRangeIssues, textIssues, after,
+					unknownDifferences);
+		}
+
+		assertThat(unknownDifferences).isEmpty();
+	}
+
+	private static Map<SyntaxToken, String> raiseIssues(ParsedFile pParsedFile, boolean pAfter,
+			boolean pUseTokenRanges, boolean pAllowLineBreaks) {
+		final Map<SyntaxToken, String> result = new IdentityHashMap<>();
+
+		final NoWhitespaceCheck check = pAfter ? new RecordingNoWhitespaceAfterCheck(result)
+				: new RecordingNoWhitespaceBeforeCheck(result);
+		check.setUseTokenRanges(pUseTokenRanges);
+		check.setAllowLineBreaks(pAllowLineBreaks);
+		CheckRunner.scan(check, pParsedFile);
+
+		return result;
+	}
+
+	private static void collectUnknownDifferences(String pSource, Map<SyntaxToken, String> pIssues,
+			Map<SyntaxToken, String> pOtherIssues, boolean pAfter, List<String> pUnknownDifferences) {
+		pIssues.forEach((token, message) -> {
+			if (!message.equals(pOtherIssues.get(token)) && !isKnownDifference(pSource, token, pAfter)) {
+				pUnknownDifferences.add(token.range().start().line() + ":" + token.range().start().column() + ": "
+						+ message);
+			}
+		});
+	}
+
+	/**
+	 * Checks if the whitespace next to a token is one of the known differences
+	 * between the modes: trailing whitespace, a form feed or a Unicode escape.
+	 */
+	private static boolean isKnownDifference(String pSource, SyntaxToken pSyntaxToken, boolean pAfter) {
+		final String whitespace = pAfter ? getWhitespaceAfter(pSource, pSyntaxToken)
+				: getWhitespaceBefore(pSource, pSyntaxToken);
+
+		final boolean trailingWhitespace = pAfter && !whitespace.isEmpty() && whitespace.charAt(0) != '\n'
+				&& whitespace.charAt(0) != '\r' && (whitespace.contains("\n") || whitespace.contains("\r"));
+		return trailingWhitespace || whitespace.contains("\f") || whitespace.contains(UNICODE_ESCAPE);
+	}
+
+	/**
+	 * Gets the whitespace and the Unicode escapes following a token.
+	 */
+	private static String getWhitespaceAfter(String pSource, SyntaxToken pSyntaxToken) {
+		final int start = findIndex(pSource, pSyntaxToken.range().end().line(), pSyntaxToken.range().end().column());
+		int end = start;
+		while (end < pSource.length()) {
+			if (Character.isWhitespace(pSource.charAt(end))) {
+				end++;
+			} else if (pSource.startsWith(UNICODE_ESCAPE, end)) {
+				end += UNICODE_ESCAPE_LENGTH;
+			} else {
+				break;
+			}
+		}
+		return pSource.substring(start, Math.min(end, pSource.length()));
+	}
+
+	/**
+	 * Gets the whitespace and the Unicode escapes preceding a token.
+	 */
+	private static String getWhitespaceBefore(String pSource, SyntaxToken pSyntaxToken) {
+		final int end = findIndex(pSource, pSyntaxToken.range().start().line(),
+				pSyntaxToken.range().start().column());
+		int start = end;
+		while (start > 0) {
+			if (Character.isWhitespace(pSource.charAt(start - 1))) {
+				start--;
+			} else if (start >= UNICODE_ESCAPE_LENGTH
+					&& pSource.startsWith(UNICODE_ESCAPE, start - UNICODE_ESCAPE_LENGTH)) {
+				start -= UNICODE_ESCAPE_LENGTH;
+			} else {
+				break;
+			}
+		}
+		return pSource.substring(start, end);
+	}
+
+	/**
+	 * Finds the index of a position in the source, whose lines are separated
+	 * by <code>\n</code>, <code>\r\n</code> or <code>\r</code>.
+	 */
+	private static int findIndex(String pSource, int pLine, int pColumn) {
+		int index = 0;
+		for (int line = 1; line < pLine; line++) {
+			while (pSource.charAt(index) != '\n' && pSource.charAt(index) != '\r') {
+				index++;
+			}
+			index += pSource.startsWith("\r\n", index) ? 2 : 1;
+		}
+		return index + pColumn - 1;
+	}
+
+	/**
+	 * Records the tokens the rule raises issues on.
+	 */
+	private static class RecordingNoWhitespaceAfterCheck extends NoWhitespaceAfterCheck {
+
+		private final Map<SyntaxToken, String> issues;
+
+		RecordingNoWhitespaceAfterCheck(Map<SyntaxToken, String> pIssues) {
+			issues = pIssues;
+		}
+
+		@Override
+		protected void raiseIssue(Tree pReportTree, SyntaxToken pSyntaxToken, String pMessage) {
+			issues.put(pSyntaxToken, pMessage);
+			super.raiseIssue(pReportTree, pSyntaxToken, pMessage);
+		}
+	}
+
+	/**
+	 * Records the tokens the rule raises issues on.
+	 */
+	private static class RecordingNoWhitespaceBeforeCheck extends NoWhitespaceBeforeCheck {
+
+		private final Map<SyntaxToken, String> issues;
+
+		RecordingNoWhitespaceBeforeCheck(Map<SyntaxToken, String> pIssues) {
+			issues = pIssues;
+		}
+
+		@Override
+		protected void raiseIssue(Tree pReportTree, SyntaxToken pSyntaxToken, String pMessage) {
+			issues.put(pSyntaxToken, pMessage);
+			super.raiseIssue(pReportTree, pSyntaxToken, pMessage);
+		}
+	}
+}
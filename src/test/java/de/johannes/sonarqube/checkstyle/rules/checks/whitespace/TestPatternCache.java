@@ -0,0 +1,68 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.java.checks.verifier.CheckVerifier;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.checks.PatternCache;
+
+/**
+ * Tests that the patterns of the RegEx hooks are compiled once and then
+ * answered from the {@link PatternCache}. Every test uses a RegEx of its own,
+ * as the cache is shared by all checks of the JVM.
+ */
+public class TestPatternCache {
+
+	private static final String TEST_FILE = "src/test/java/de/johannes/sonarqube/checkstyle/rules/checks/whitespace/testfiles/NoWhitespaceAfterCheck_AllowLineBreaksIsTrue_TestFile.java";
+
+	@Test
+	void testRepeatedLookupsHitTheCache() {
+		final String regEx = "testRepeatedLookupsHitTheCache\\s*";
+
+		assertThat(PatternCache.getLeftSided(regEx)).isSameAs(PatternCache.getLeftSided(regEx))
+				.isSameAs(PatternCache.getLeftSided(regEx));
+		assertThat(PatternCache.getRightSided(regEx)).isSameAs(PatternCache.getRightSided(regEx))
+				.isNotSameAs(PatternCache.getLeftSided(regEx));
+
+		assertThat(PatternCache.getLeftSidedLookupCount(regEx)).isEqualTo(4);
+		assertThat(PatternCache.getRightSidedLookupCount(regEx)).isEqualTo(2);
+		assertThat(PatternCache.getLeftSidedLookupCount("testRepeatedLookupsHitTheCache")).isZero();
+	}
+
+	@Test
+	void testRegExHooksUseTheCache() {
+		final RegExMatchingCheck check = new RegExMatchingCheck();
+
+		CheckVerifier.newVerifier().onFile(TEST_FILE).withCheck(check).verifyIssues();
+
+		assertThat(check.calls).isGreaterThan(1);
+		assertThat(PatternCache.getLeftSidedLookupCount(RegExMatchingCheck.REG_EX)).isEqualTo(check.calls);
+		assertThat(PatternCache.getRightSidedLookupCount(RegExMatchingCheck.REG_EX)).isEqualTo(check.calls);
+	}
+
+	/**
+	 * Applies a left and a right sided RegEx to the token of every visited
+	 * node, next to the regular checks.
+	 */
+	private static class RegExMatchingCheck extends NoWhitespaceAfterCheck {
+
+		private static final String REG_EX = "testRegExHooksUseTheCache\\s*";
+
+		private long calls;
+
+		@Override
+		protected void checkNode(Tree pTree) {
+			final SyntaxToken firstToken = pTree.firstToken();
+			if (firstToken != null) {
+				isRegExMatchingLeftSidedCharsOfToken(firstToken, REG_EX);
+				isRegExMatchingRightSidedCharsOfToken(firstToken, REG_EX);
+				calls++;
+			}
+			super.checkNode(pTree);
+		}
+	}
+}
@@ -117,6 +117,24 @@ public class NoWhitespaceBeforeCheck_AllowLineBreaksTrue_TestFile {
 		for (int i = 0; i < 10; i++) {
 		}
 	}
+	private void forInitializerVariables() {
+		// Noncompliant@+1 {{',' is preceded by whitespace.}}
+		for (int i = 0 , j = 10; i < j; i++) {
+		}
+
+		// Noncompliant@+1 {{';' is preceded by whitespace.}}
+		for (int i = 0, j = 10 ; i < j; i++) {
+		}
+	}
+	private void forInitializerExpressions(int i, int j) {
+		// Noncompliant@+1 {{',' is preceded by whitespace.}}
+		for (i = 0 , j = 10; i < j; i++, j--) {
+		}
+
+		// Noncompliant@+1 {{',' is preceded by whitespace.}}
+		for (i = 0, j = 10; i < j; i++ , j--) {
+		}
+	}
 	// Compliant@+1
 	;
 	
@@ -0,0 +1,22 @@
+package de.johannes.sonarqube.checkstyle.rules.checks.whitespace.testfiles;
+
+import javax.annotation.processing.Generated;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+
+/**
+ * Test file for {@link NoWhitespaceBeforeCheck} skipping generated code
+ * annotated with <code>@Generated</code>.
+ */
+//@formatter:off
+@Generated("protoc")
+public class NoWhitespaceCheck_GeneratedAnnotation_TestFile {
+
+	public void generated() {
+		// Noncompliant@+1 {{',' is preceded by whitespace.}}
+		String.format("%s", "a" , "b");
+
+		// Noncompliant@+1 {{';' is preceded by whitespace.}}
+		String.valueOf(1) ;
+	}
+}
@@ -0,0 +1,298 @@
+package de.johannes.sonarqube.checkstyle.rules.corpus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates syntactically valid Java sources of a given size for the stress
+ * tests and benchmarks. The sources are built from randomly chosen constructs
+ * whose optional whitespace is randomly omitted, filled with a space or
+ * replaced by a line break, so they contain compliant and non-compliant code
+ * for both whitespace checks. The output only depends on the seed and the
+ * settings, so a run can be reproduced offline.
+ */
+public final class JavaCorpusGenerator {
+
+	/** Marks a position in a template where optional whitespace may be put. */
+	private static final char GAP = '#';
+
+	private static final String INDENT = "\t";
+
+	private final long seed;
+	private final Map<Construct, Integer> weights = new EnumMap<>(Construct.class);
+	private LineSeparator lineSeparator = LineSeparator.LF;
+	private double whitespaceRatio = 0.3;
+	private double lineBreakRatio = 0.02;
+
+	/**
+	 * Creates a generator whose constructs are all equally weighted.
+	 *
+	 * @param pSeed
+	 *            the seed of the random generator.
+	 */
+	public JavaCorpusGenerator(long pSeed) {
+		seed = pSeed;
+		for (final Construct construct : Construct.values()) {
+			weights.put(construct, 1);
+		}
+	}
+
+	/**
+	 * Generates a compilation unit containing a single class.
+	 *
+	 * @param pClassName
+	 *            the name of the class.
+	 * @param pLines
+	 *            the minimum number of lines; the last method and the class
+	 *            are closed after it is reached.
+	 * @return the source.
+	 */
+	public String generate(String pClassName, int pLines) {
+		final Emitter emitter = new Emitter(new Random(seed));
+
+		emitter.line(0, "package corpus;");
+		emitter.line(0, "");
+		emitter.line(0, "import java.lang.annotation.ElementType;");
+		emitter.line(0, "import java.lang.annotation.Target;");
+		emitter.line(0, "import java.util.*;");
+		emitter.line(0, "import java.util.function.*;");
+		emitter.line(0, "");
+		emitter.line(0, "public class " + pClassName + " {");
+		emitter.line(0, "");
+		emitter.line(1, "@Target(ElementType.TYPE_USE)");
+		emitter.line(1, "@interface NonNull {");
+		emitter.line(1, "}");
+
+		for (int method = 0; emitter.getLineCount() < pLines - 1; method++) {
+			emitter.method(method, pLines - 1);
+		}
+
+		emitter.line(0, "}");
+		return emitter.toString();
+	}
+
+	/**
+	 * Sets the relative frequency of a construct. A weight of <code>0</code>
+	 * disables the construct.
+	 *
+	 * @param pConstruct
+	 *            the construct.
+	 * @param pWeight
+	 *            the weight, not negative.
+	 */
+	public void setWeight(Construct pConstruct, int pWeight) {
+		if (pWeight < 0) {
+			throw new IllegalArgumentException("The weight must not be negative: " + pWeight);
+		}
+		weights.put(pConstruct, pWeight);
+	}
+
+	public void setLineSeparator(LineSeparator pLineSeparator) {
+		lineSeparator = pLineSeparator;
+	}
+
+	/**
+	 * Sets the probability that a space is put where whitespace is optional.
+	 *
+	 * @param pWhitespaceRatio
+	 *            the probability between <code>0</code> and <code>1</code>.
+	 */
+	public void setWhitespaceRatio(double pWhitespaceRatio) {
+		whitespaceRatio = pWhitespaceRatio;
+	}
+
+	/**
+	 * Sets the probability that a line break is put where whitespace is
+	 * optional.
+	 *
+	 * @param pLineBreakRatio
+	 *            the probability between <code>0</code> and <code>1</code>.
+	 */
+	public void setLineBreakRatio(double pLineBreakRatio) {
+		lineBreakRatio = pLineBreakRatio;
+	}
+
+	/**
+	 * Constructs the generated methods are composed of.
+	 */
+	public enum Construct {
+		/** Parameterized types, type arguments and diamonds. */
+		GENERICS,
+		/** Chained field accesses and method invocations. */
+		MEMBER_SELECT,
+		/** Primitive and reference type casts. */
+		CAST,
+		/** Array types, some with type annotations, and array accesses. */
+		ARRAY_TYPE,
+		/** Labeled loops with <code>break</code> and <code>continue</code>. */
+		LABELED_STATEMENT,
+		/** Prefix and postfix unary operators. */
+		UNARY_OPERATOR,
+		/** Method references. */
+		METHOD_REFERENCE
+	}
+
+	/**
+	 * Line separators of the generated sources.
+	 */
+	public enum LineSeparator {
+		LF("\n"), CRLF("\r\n");
+
+		private final String separator;
+
+		LineSeparator(String pSeparator) {
+			separator = pSeparator;
+		}
+
+		public String getSeparator() {
+			return separator;
+		}
+	}
+
+	/**
+	 * Writes the lines of a single generated source.
+	 */
+	private final class Emitter {
+		private final Random random;
+		private final StringBuilder source = new StringBuilder();
+		private int lineCount = 0;
+		private int variable = 0;
+
+		Emitter(Random pRandom) {
+			random = pRandom;
+		}
+
+		int getLineCount() {
+			return lineCount;
+		}
+
+		void method(int pMethod, int pLineLimit) {
+			line(0, "");
+			line(1, "@SuppressWarnings(\"unused\")");
+			line(1, "<T extends Comparable#<#T#>#> void method" + pMethod + "(String#[#]# values, int#...# numbers) {");
+
+			final int statements = 4 + random.nextInt(12);
+			for (int statement = 0; statement < statements && lineCount < pLineLimit; statement++) {
+				construct(nextConstruct());
+			}
+
+			line(1, "}");
+		}
+
+		private Construct nextConstruct() {
+			int total = 0;
+			for (final int weight : weights.values()) {
+				total += weight;
+			}
+			if (total == 0) {
+				throw new IllegalStateException("At least one construct must have a positive weight");
+			}
+
+			int pick = random.nextInt(total);
+			Construct result = null;
+			for (final Map.Entry<Construct, Integer> entry : weights.entrySet()) {
+				pick -= entry.getValue();
+				if (result == null && pick < 0) {
+					result = entry.getKey();
+				}
+			}
+			return result;
+		}
+
+		private void construct(Construct pConstruct) {
+			final int v = variable++;
+
+			switch (pConstruct) {
+			case GENERICS:
+				line(2, "Map#<#String#,# List#<#Integer#>#> generic" + v + " = new HashMap#<#>#();");
+				line(2, "generic" + v + "#.#computeIfAbsent#(\"a\", key -> new ArrayList#<#>#())#.#add#(#1#)#;");
+				line(2, "Optional#<#? extends Comparable#<#T#>#> wildcard" + v + " = Optional#.#<#T#>#empty#()#;");
+				break;
+			case MEMBER_SELECT:
+				line(2, "int select" + v + " = values#.#length + String#.#valueOf#(#numbers#.#length#)#.#trim#()#.#length#()#;");
+				line(2, "System#.#out#.#println#(#select" + v + "#)#;");
+				break;
+			case CAST:
+				line(2, "long cast" + v + " = (#long#)# numbers#.#length + (#int#)# 'c';");
+				line(2, "Object object" + v + " = (#Object#)# values;");
+				line(2, "String string" + v + " = (#String#)# (#Object#)# \"s\";");
+				break;
+			case ARRAY_TYPE:
+				line(2, "String# @NonNull# [#]# annotated" + v + " = values;");
+				line(2, "int#[#]#[#]# matrix" + v + " = new int#[#2#]#[#3#]#;");
+				line(2, "matrix" + v + "#[#0#]#[#1#]# = numbers#[#0#]#;");
+				line(2, "int#[#]# literal" + v + " = {#1#,# 2#,# 3#}#;");
+				break;
+			case LABELED_STATEMENT:
+				line(2, "outer" + v + "#:");
+				line(2, "for (#int i" + v + " = 0#;# i" + v + " < numbers#.#length#;# i" + v + "++#) {");
+				line(3, "inner" + v + "#:# for (#;#;#) {");
+				line(4, "if (numbers#[#i" + v + "#]# > 0) {");
+				line(5, "continue outer" + v + "#;");
+				line(4, "}");
+				line(4, "break inner" + v + "#;");
+				line(3, "}");
+				line(2, "}");
+				break;
+			case UNARY_OPERATOR:
+				line(2, "int unary" + v + " = -# numbers#.#length + ~# numbers#.#length;");
+				line(2, "unary" + v + "#++#;");
+				line(2, "--# unary" + v + "#;");
+				line(2, "boolean negated" + v + " = !# (#unary" + v + " > 0#)#;");
+				break;
+			case METHOD_REFERENCE:
+				line(2, "Function#<#String#,# Integer#># reference" + v + " = String#::#length#;");
+				line(2, "Supplier#<#List#<#String#>#># constructor" + v + " = ArrayList#::#new#;");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown construct: " + pConstruct);
+			}
+		}
+
+		/**
+		 * Appends a line, replacing each gap marker by nothing, a space or a
+		 * line break.
+		 */
+		void line(int pIndent, String pTemplate) {
+			indent(pIndent);
+			for (int i = 0; i < pTemplate.length(); i++) {
+				final char c = pTemplate.charAt(i);
+				if (c == GAP) {
+					gap(pIndent + 2);
+				} else {
+					source.append(c);
+				}
+			}
+			newLine();
+		}
+
+		private void gap(int pContinuationIndent) {
+			final double value = random.nextDouble();
+
+			if (value < lineBreakRatio) {
+				newLine();
+				indent(pContinuationIndent);
+
+			} else if (value < lineBreakRatio + whitespaceRatio) {
+				source.append(' ');
+			}
+		}
+
+		private void indent(int pIndent) {
+			for (int i = 0; i < pIndent; i++) {
+				source.append(INDENT);
+			}
+		}
+
+		private void newLine() {
+			source.append(lineSeparator.getSeparator());
+			lineCount++;
+		}
+
+		@Override
+		public String toString() {
+			return source.toString();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package de.johannes.sonarqube.checkstyle.rules.corpus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator.Construct;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator.LineSeparator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+
+/**
+ * Tests that {@link JavaCorpusGenerator} creates reproducible, parsable
+ * sources of the requested size.
+ */
+public class TestJavaCorpusGenerator {
+
+	@Test
+	void testSameSeedCreatesSameSource() {
+		final String first = new JavaCorpusGenerator(1L).generate("Corpus", 500);
+		final String second = new JavaCorpusGenerator(1L).generate("Corpus", 500);
+		final String other = new JavaCorpusGenerator(2L).generate("Corpus", 500);
+
+		assertThat(first).isEqualTo(second).isNotEqualTo(other);
+	}
+
+	@ParameterizedTest(name = "lineSeparator: {arguments}")
+	@EnumSource(LineSeparator.class)
+	void testLineSeparatorAndSize(LineSeparator pLineSeparator) {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(1L);
+		generator.setLineSeparator(pLineSeparator);
+		final String source = generator.generate("Corpus", 1000);
+
+		final String[] lines = source.split("\n", -1);
+		assertThat(lines.length - 1).isBetween(1000, 1100);
+		assertThat(source.replace(pLineSeparator.getSeparator(), "")).doesNotContain("\n").doesNotContain("\r");
+	}
+
+	@ParameterizedTest(name = "construct: {arguments}")
+	@EnumSource(Construct.class)
+	void testEachConstructIsParsable(Construct pConstruct) {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(1L);
+		for (final Construct construct : Construct.values()) {
+			generator.setWeight(construct, construct == pConstruct ? 1 : 0);
+		}
+		generator.setLineBreakRatio(0.2);
+
+		final CheckRunner.ParsedFile parsedFile = CheckRunner.parse("Corpus.java",
+				generator.generate("Corpus", 200));
+
+		assertThat(parsedFile.getTree().types()).hasSize(1);
+	}
+
+	@Test
+	void testNoConstructEnabled() {
+		final JavaCorpusGenerator generator = new JavaCorpusGenerator(1L);
+		for (final Construct construct : Construct.values()) {
+			generator.setWeight(construct, 0);
+		}
+
+		assertThatThrownBy(() -> generator.generate("Corpus", 100)).isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,112 @@
+package de.johannes.sonarqube.checkstyle.rules.harness;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.sonar.plugins.java.api.caching.CacheContext;
+import org.sonar.plugins.java.api.caching.JavaReadCache;
+import org.sonar.plugins.java.api.caching.JavaWriteCache;
+
+/**
+ * Analysis cache held in memory, standing in for the cache of the scanner.
+ * Like the scanner's cache, it reads the entries of the previous analysis and
+ * writes the entries of the next one; {@link #nextAnalysis()} makes the
+ * written entries readable.
+ */
+public final class InMemoryCacheContext implements CacheContext, JavaReadCache, JavaWriteCache {
+
+	private Map<String, byte[]> previousEntries = new HashMap<>();
+	private Map<String, byte[]> nextEntries = new HashMap<>();
+	private final Set<String> writtenKeys = new HashSet<>();
+	private final Set<String> copiedKeys = new HashSet<>();
+
+	/**
+	 * Starts the next analysis: the entries written so far become the entries
+	 * of the previous analysis.
+	 */
+	public void nextAnalysis() {
+		previousEntries = nextEntries;
+		nextEntries = new HashMap<>();
+		writtenKeys.clear();
+		copiedKeys.clear();
+	}
+
+	/**
+	 * @return the keys written with new data in this analysis.
+	 */
+	public Set<String> getWrittenKeys() {
+		return writtenKeys;
+	}
+
+	/**
+	 * @return the keys copied from the previous analysis in this analysis.
+	 */
+	public Set<String> getCopiedKeys() {
+		return copiedKeys;
+	}
+
+	@Override
+	public boolean isCacheEnabled() {
+		return true;
+	}
+
+	@Override
+	public JavaReadCache getReadCache() {
+		return this;
+	}
+
+	@Override
+	public JavaWriteCache getWriteCache() {
+		return this;
+	}
+
+	@Override
+	public InputStream read(String pKey) {
+		final byte[] data = readBytes(pKey);
+		return data == null ? null : new ByteArrayInputStream(data);
+	}
+
+	@Override
+	public byte[] readBytes(String pKey) {
+		return previousEntries.get(pKey);
+	}
+
+	@Override
+	public boolean contains(String pKey) {
+		return previousEntries.containsKey(pKey);
+	}
+
+	@Override
+	public void write(String pKey, InputStream pData) {
+		try {
+			write(pKey, pData.readAllBytes());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void write(String pKey, byte[] pData) {
+		if (nextEntries.containsKey(pKey)) {
+			throw new IllegalArgumentException("Same key cannot be written to multiple times (" + pKey + ")");
+		}
+		nextEntries.put(pKey, pData);
+		writtenKeys.add(pKey);
+	}
+
+	@Override
+	public void copyFromPrevious(String pKey) {
+		if (!previousEntries.containsKey(pKey)) {
+			throw new IllegalArgumentException("No cache data available for key " + pKey);
+		}
+		write(pKey, previousEntries.get(pKey));
+		writtenKeys.remove(pKey);
+		copiedKeys.add(pKey);
+	}
+}
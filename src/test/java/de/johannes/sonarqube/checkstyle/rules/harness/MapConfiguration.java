@@ -0,0 +1,45 @@
+package de.johannes.sonarqube.checkstyle.rules.harness;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.sonar.api.config.Configuration;
+
+/**
+ * Scanner configuration backed by a map, for the components under test.
+ */
+public final class MapConfiguration implements Configuration {
+
+	private final Map<String, String> properties = new HashMap<>();
+
+	/**
+	 * Sets a property.
+	 *
+	 * @param pKey
+	 *            the key of the property.
+	 * @param pValue
+	 *            the value of the property.
+	 * @return this configuration.
+	 */
+	public MapConfiguration put(String pKey, String pValue) {
+		properties.put(pKey, pValue);
+		return this;
+	}
+
+	@Override
+	public Optional<String> get(String pKey) {
+		return Optional.ofNullable(properties.get(pKey));
+	}
+
+	@Override
+	public boolean hasKey(String pKey) {
+		return properties.containsKey(pKey);
+	}
+
+	@Override
+	public String[] getStringArray(String pKey) {
+		final String value = properties.get(pKey);
+		return value == null ? new String[0] : value.split(",");
+	}
+}
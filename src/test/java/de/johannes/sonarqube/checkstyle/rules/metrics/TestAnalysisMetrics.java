@@ -0,0 +1,121 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceAfterCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.harness.MapConfiguration;
+import de.johannes.sonarqube.checkstyle.rules.plugin.JavaRulesPlugin;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+
+/**
+ * Tests that the rules count into their {@link AnalysisMetrics} only while the
+ * metrics or the slowest files are on.
+ */
+public class TestAnalysisMetrics {
+
+	private static final ParsedFile PARSED_FILE = CheckRunner.parse("Metrics.java",
+			new JavaCorpusGenerator(1L).generate("Metrics", 300));
+
+	private static AnalysisMetrics createMetrics(boolean pMetricsEnabled) {
+		return new AnalysisMetrics(
+				new MapConfiguration().put(JavaRulesPlugin.METRICS_ENABLED_KEY, String.valueOf(pMetricsEnabled)));
+	}
+
+	private static NoWhitespaceAfterCheck createCheck(AnalysisMetrics pAnalysisMetrics) {
+		final NoWhitespaceAfterCheck result = new NoWhitespaceAfterCheck();
+		result.setAnalysisMetrics(pAnalysisMetrics);
+		return result;
+	}
+
+	@ParameterizedTest(name = "useTokenRanges: {arguments}")
+	@ValueSource(booleans = { false, true })
+	void testCountersOfRule(boolean pUseTokenRanges) {
+		final AnalysisMetrics analysisMetrics = createMetrics(true);
+
+		final NoWhitespaceAfterCheck noWhitespaceAfterCheck = createCheck(analysisMetrics);
+		noWhitespaceAfterCheck.setUseTokenRanges(pUseTokenRanges);
+		final List<Issue> issues = CheckRunner.scan(noWhitespaceAfterCheck, PARSED_FILE);
+		CheckRunner.scan(noWhitespaceAfterCheck, PARSED_FILE);
+
+		final List<RuleMetrics> ruleMetrics = analysisMetrics.getRuleMetrics();
+		assertThat(ruleMetrics).hasSize(1);
+
+		final RuleMetrics metrics = ruleMetrics.get(0);
+		assertThat(metrics.getRuleKey()).isEqualTo("NoWhitespaceAfterCheck");
+		assertThat(metrics.getFiles()).isEqualTo(2);
+		assertThat(metrics.getNodes()).isPositive();
+		assertThat(metrics.getTokens()).isPositive().isLessThanOrEqualTo(metrics.getNodes());
+		assertThat(metrics.getIssues()).isEqualTo(2L * issues.size());
+		assertThat(metrics.getNanos()).isPositive();
+		assertThat(metrics.getTextChars()).isEqualTo(pUseTokenRanges ? 0 : 2L * PARSED_FILE.getSource().length());
+	}
+
+	@Test
+	void testNothingCountedWhenOff() {
+		final AnalysisMetrics metrics = createMetrics(false);
+		CheckRunner.scan(createCheck(metrics), PARSED_FILE);
+
+		assertThat(metrics.isEnabled()).isFalse();
+		assertThat(metrics.isActive()).isFalse();
+		assertThat(metrics.getRuleMetrics()).isEmpty();
+	}
+
+	@Test
+	void testSlowestFilesWithoutMetrics() {
+		final AnalysisMetrics metrics = new AnalysisMetrics(new MapConfiguration()
+				.put(JavaRulesPlugin.SLOWEST_FILES_KEY, "5")
+				.put(JavaRulesPlugin.SLOWEST_FILES_REPORT_KEY, "target/slowest-files.json"));
+		CheckRunner.scan(createCheck(metrics), PARSED_FILE);
+
+		assertThat(metrics.isEnabled()).isFalse();
+		assertThat(metrics.isReportingSlowestFiles()).isTrue();
+		assertThat(metrics.getSlowestFilesReport()).isEqualTo("target/slowest-files.json");
+		assertThat(metrics.isActive()).isTrue();
+		assertThat(metrics.getRuleMetrics()).isEmpty();
+		assertThat(metrics.getSlowestFiles().getFiles()).hasSize(1)
+				.allSatisfy(fileTime -> assertThat(fileTime.getNanos()).isPositive());
+	}
+
+	@Test
+	void testSlowestFilesOffByDefault() {
+		final AnalysisMetrics metrics = createMetrics(true);
+		CheckRunner.scan(createCheck(metrics), PARSED_FILE);
+
+		assertThat(metrics.isReportingSlowestFiles()).isFalse();
+		assertThat(metrics.getSlowestFilesReport()).isEqualTo(AnalysisMetrics.DEFAULT_SLOWEST_FILES_REPORT);
+		assertThat(metrics.getRuleMetrics()).hasSize(1);
+		assertThat(metrics.getSlowestFiles().getFiles()).isEmpty();
+	}
+
+	@Test
+	void testAnalysesCountSeparately() {
+		final AnalysisMetrics metrics = createMetrics(true);
+		final AnalysisMetrics otherMetrics = createMetrics(true);
+
+		CheckRunner.scan(createCheck(metrics), PARSED_FILE);
+		CheckRunner.scan(createCheck(otherMetrics), PARSED_FILE);
+		CheckRunner.scan(createCheck(otherMetrics), PARSED_FILE);
+
+		assertThat(metrics.getRuleMetrics()).hasSize(1);
+		assertThat(metrics.getRuleMetrics().get(0).getFiles()).isEqualTo(1);
+		assertThat(otherMetrics.getRuleMetrics()).hasSize(1);
+		assertThat(otherMetrics.getRuleMetrics().get(0).getFiles()).isEqualTo(2);
+	}
+
+	@Test
+	void testNothingCountedWithoutMetrics() {
+		final AnalysisMetrics metrics = createMetrics(true);
+		CheckRunner.scan(new NoWhitespaceAfterCheck(), PARSED_FILE);
+
+		assertThat(metrics.getRuleMetrics()).isEmpty();
+	}
+}
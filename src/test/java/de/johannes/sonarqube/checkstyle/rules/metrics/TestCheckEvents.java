@@ -0,0 +1,76 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceBeforeCheck;
+import de.johannes.sonarqube.checkstyle.rules.corpus.JavaCorpusGenerator;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.Issue;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner.ParsedFile;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests that the rules emit {@link CheckFileEvent} and {@link SlowTokenEvent}
+ * while a recording has enabled them.
+ */
+public class TestCheckEvents {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testEventsOfRecording() throws IOException {
+		final ParsedFile parsedFile = CheckRunner.parse("Events.java",
+				new JavaCorpusGenerator(1L).generate("Events", 300));
+		final List<Issue> issues;
+
+		try (Recording recording = new Recording()) {
+			recording.enable(CheckFileEvent.class).withThreshold(Duration.ZERO);
+			recording.enable(SlowTokenEvent.class).withThreshold(Duration.ZERO);
+			recording.start();
+
+			issues = CheckRunner.scan(new NoWhitespaceBeforeCheck(), parsedFile);
+
+			recording.stop();
+			recording.dump(tempDir.resolve("events.jfr"));
+		}
+
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(tempDir.resolve("events.jfr"));
+		final List<RecordedEvent> fileEvents = eventsOfType(events, "de.johannes.sonarqube.checkstyle.CheckFile");
+		final List<RecordedEvent> tokenEvents = eventsOfType(events, "de.johannes.sonarqube.checkstyle.SlowToken");
+
+		assertThat(fileEvents).hasSize(1);
+		final RecordedEvent fileEvent = fileEvents.get(0);
+		assertThat(fileEvent.getString("rule")).isEqualTo("NoWhitespaceBeforeCheck");
+		assertThat(fileEvent.getInt("lines")).isGreaterThanOrEqualTo(300);
+		assertThat(fileEvent.getLong("visits")).isPositive();
+		assertThat(fileEvent.getLong("tokens")).isEqualTo(tokenEvents.size()).isPositive();
+		assertThat(fileEvent.getLong("issues")).isEqualTo(issues.size());
+
+		assertThat(tokenEvents).allSatisfy(tokenEvent -> {
+			assertThat(tokenEvent.getString("rule")).isEqualTo("NoWhitespaceBeforeCheck");
+			assertThat(tokenEvent.getString("token")).isNotEmpty();
+			assertThat(tokenEvent.getString("kind")).isNotEmpty();
+			assertThat(tokenEvent.getString("side")).isEqualTo("before");
+			assertThat(tokenEvent.getInt("line")).isPositive();
+			assertThat(tokenEvent.getInt("column")).isPositive();
+		});
+		assertThat(tokenEvents).extracting(tokenEvent -> tokenEvent.getString("token")).contains(";", ",", ".");
+	}
+
+	private static List<RecordedEvent> eventsOfType(List<RecordedEvent> pEvents, String pName) {
+		return pEvents.stream().filter(event -> event.getEventType().getName().equals(pName))
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,44 @@
+package de.johannes.sonarqube.checkstyle.rules.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that {@link SlowestFiles} keeps only the slowest files.
+ */
+public class TestSlowestFiles {
+
+	@Test
+	void testKeepsSlowestFiles() {
+		final SlowestFiles slowestFiles = new SlowestFiles(2);
+		slowestFiles.offer("A.java", 10, 300);
+		slowestFiles.offer("B.java", 20, 100);
+		slowestFiles.offer("C.java", 30, 500);
+		slowestFiles.offer("D.java", 40, 200);
+
+		assertThat(slowestFiles.getFiles()).extracting(SlowestFiles.FileTime::getFile)
+				.containsExactly("C.java", "A.java");
+	}
+
+	@Test
+	void testNoFilesKept() {
+		final SlowestFiles slowestFiles = new SlowestFiles(0);
+		slowestFiles.offer("A.java", 10, 300);
+
+		assertThat(slowestFiles.getFiles()).isEmpty();
+		assertThat(slowestFiles.toJson()).isEqualTo("[]\n");
+	}
+
+	@Test
+	void testJson() {
+		final SlowestFiles slowestFiles = new SlowestFiles(2);
+		slowestFiles.offer("src/\"A\".java", 10, 300);
+		slowestFiles.offer(null, 20, 100);
+
+		assertThat(slowestFiles.toJson()).isEqualTo("[\n"
+				+ "  {\"file\": \"src/\\\"A\\\".java\", \"lines\": 10, \"nanos\": 300},\n"
+				+ "  {\"file\": null, \"lines\": 20, \"nanos\": 100}\n"
+				+ "]\n");
+	}
+}
@@ -2,11 +2,19 @@ package de.johannes.sonarqube.checkstyle.rules.plugin;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.sonar.plugins.java.api.CheckRegistrar;
 
+import de.johannes.sonarqube.checkstyle.rules.checks.IncrementalResults;
+import de.johannes.sonarqube.checkstyle.rules.checks.NoWhitespaceCheck;
+import de.johannes.sonarqube.checkstyle.rules.harness.MapConfiguration;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+import de.johannes.sonarqube.checkstyle.rules.runner.CheckRunner;
+
 /**
- * 
+ *
  * Test for {@link JavaFileCheckRegistrar}.
  *
  */
@@ -16,11 +24,38 @@ class TestFileCheckRegistrar {
 	void checkNumberRules() {
 		final CheckRegistrar.RegistrarContext context = new CheckRegistrar.RegistrarContext();
 
-		final JavaFileCheckRegistrar registrar = new JavaFileCheckRegistrar();
+		final JavaFileCheckRegistrar registrar = new JavaFileCheckRegistrar(createMetrics(),
+				new IncrementalResults());
 		registrar.register(context);
 
 		assertThat(context.checkClasses()).hasSize(2);
 		assertThat(context.testCheckClasses()).hasSize(0);
 	}
 
-}
\ No newline at end of file
+	@Test
+	void checksCountIntoTheMetricsOfTheirRegistrar() {
+		final AnalysisMetrics analysisMetrics = createMetrics();
+		final AnalysisMetrics otherAnalysisMetrics = createMetrics();
+
+		final CheckRegistrar.RegistrarContext context = new CheckRegistrar.RegistrarContext();
+		new JavaFileCheckRegistrar(analysisMetrics, new IncrementalResults()).register(context);
+		new JavaFileCheckRegistrar(otherAnalysisMetrics, new IncrementalResults())
+				.register(new CheckRegistrar.RegistrarContext());
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		final List<Object> checks = (List) context.checkClasses();
+		assertThat(checks).allSatisfy(check -> assertThat(check).isInstanceOf(NoWhitespaceCheck.class));
+
+		final CheckRunner.ParsedFile parsedFile = CheckRunner.parse("A.java", "class A {\n\tint[] a = new int [1];\n}\n");
+		for (final Object check : checks) {
+			CheckRunner.scan((NoWhitespaceCheck) check, parsedFile);
+		}
+
+		assertThat(analysisMetrics.getRuleMetrics()).hasSize(2);
+		assertThat(otherAnalysisMetrics.getRuleMetrics()).isEmpty();
+	}
+
+	private static AnalysisMetrics createMetrics() {
+		return new AnalysisMetrics(new MapConfiguration().put(JavaRulesPlugin.METRICS_ENABLED_KEY, "true"));
+	}
+}
@@ -0,0 +1,79 @@
+package de.johannes.sonarqube.checkstyle.rules.plugin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.FileSystem;
+
+import de.johannes.sonarqube.checkstyle.rules.harness.MapConfiguration;
+import de.johannes.sonarqube.checkstyle.rules.metrics.AnalysisMetrics;
+
+/**
+ * Tests that {@link MetricsPostJob} writes the report of the slowest files to
+ * the working directory of the scanner, not to the project.
+ */
+class TestMetricsPostJob {
+
+	@TempDir
+	Path baseDir;
+
+	@TempDir
+	Path workDir;
+
+	@Test
+	void testSlowestFilesReportInWorkingDirectory() throws IOException {
+		execute(new MapConfiguration().put(JavaRulesPlugin.SLOWEST_FILES_KEY, "2"));
+
+		final Path report = workDir.resolve(AnalysisMetrics.DEFAULT_SLOWEST_FILES_REPORT);
+		assertThat(new String(Files.readAllBytes(report), StandardCharsets.UTF_8)).contains("\"file\": \"A.java\"");
+		assertThat(baseDir).isEmptyDirectory();
+	}
+
+	@Test
+	void testSlowestFilesReportPathOverride() {
+		execute(new MapConfiguration().put(JavaRulesPlugin.SLOWEST_FILES_KEY, "2")
+				.put(JavaRulesPlugin.SLOWEST_FILES_REPORT_KEY, "reports/slowest.json"));
+
+		assertThat(workDir.resolve("reports").resolve("slowest.json")).isRegularFile();
+		assertThat(workDir.resolve(AnalysisMetrics.DEFAULT_SLOWEST_FILES_REPORT)).doesNotExist();
+	}
+
+	@Test
+	void testNoReportWithoutSlowestFiles() {
+		execute(new MapConfiguration().put(JavaRulesPlugin.METRICS_ENABLED_KEY, "true"));
+
+		assertThat(workDir).isEmptyDirectory();
+	}
+
+	private void execute(MapConfiguration pConfiguration) {
+		final AnalysisMetrics metrics = new AnalysisMetrics(pConfiguration);
+		metrics.getSlowestFiles().offer("A.java", 10, 100);
+
+		new MetricsPostJob(metrics, createFileSystem()).execute(null);
+	}
+
+	/**
+	 * Creates a file system whose only backed methods are the base and the
+	 * working directory.
+	 */
+	private FileSystem createFileSystem() {
+		return (FileSystem) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { FileSystem.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "baseDir":
+						return baseDir.toFile();
+					case "workDir":
+						return workDir.toFile();
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}